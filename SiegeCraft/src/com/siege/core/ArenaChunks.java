@@ -0,0 +1,209 @@
+package com.siege.core;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+
+import com.siege.data.Tower;
+
+import siege.util.BukkitRestricted;
+
+/**
+ * chunks used by a game: tower ranges, spawns, the powerup area and the lanes
+ * walked by the robots between the towers. Chunks are pinned with plugin
+ * tickets for the whole game, so the server never unloads them during the
+ * game. Adding a ticket loads the chunk in the same call, so only the chunks
+ * already loaded are pinned at once, the others are loaded a few per tick
+ * during the countdown and pinned after loading
+ * 
+ * @author Tommaso
+ *
+ */
+@BukkitRestricted
+final class ArenaChunks {
+
+	// half width of a robot lane and distance between two lane samples
+	private static final int LANE_WIDTH = 8;
+	private static final int LANE_STEP = 8;
+
+	private final World world;
+	private final long[] keys;
+
+	// chunks with a ticket of this game
+	private final boolean[] ticketed;
+	private boolean pinned;
+
+	// first chunk not loaded and pinned yet
+	private int cursor;
+
+	/**
+	 * compute the chunks of the objects set in a game. Missing objects are
+	 * skipped
+	 * 
+	 * @param world the arena world
+	 * @param game  the game
+	 */
+	ArenaChunks(World world, SiegeGame game) {
+		this.world = world;
+
+		Set<Long> chunks = new LinkedHashSet<>();
+
+		// spawns first, they are the first used
+		addSquare(chunks, game.getBlueSpawn(), 1);
+		addSquare(chunks, game.getRedSpawn(), 1);
+
+		Tower blue = game.getBlueTower();
+		Tower red = game.getRedTower();
+		if (blue != null)
+			addSquare(chunks, blue.getTower().getLocation(), blue.getRadius());
+		if (red != null)
+			addSquare(chunks, red.getTower().getLocation(), red.getRadius());
+		if (blue != null && red != null)
+			addLane(chunks, blue.getTower().getLocation(), red.getTower().getLocation());
+
+		addDisk(chunks, game.getPowerupSpawn(), game.getSettings().getPowerupSpawnRadius());
+
+		keys = chunks.stream().mapToLong(Long::longValue).toArray();
+		ticketed = new boolean[keys.length];
+	}
+
+	/**
+	 * get the chunk keys
+	 * 
+	 * @return chunk x in the high 32 bits and chunk z in the low 32 bits
+	 */
+	long[] keys() {
+		return keys.clone();
+	}
+
+	/**
+	 * add a plugin ticket to the chunks already loaded. The other chunks are
+	 * pinned by {@link #loadNext(int)} and {@link #load()}
+	 */
+	void pin() {
+		if (pinned)
+			return;
+
+		pinned = true;
+		for (int i = 0; i < keys.length; i++)
+			if (world.isChunkLoaded(x(keys[i]), z(keys[i])))
+				ticket(i);
+	}
+
+	/**
+	 * remove the tickets added by this game
+	 */
+	void release() {
+		if (!pinned)
+			return;
+
+		pinned = false;
+		cursor = 0;
+		for (int i = 0; i < keys.length; i++)
+			if (ticketed[i]) {
+				ticketed[i] = false;
+				world.removePluginChunkTicket(x(keys[i]), z(keys[i]), SiegeCraft.getInstance());
+			}
+	}
+
+	/**
+	 * load and pin some of the chunks not pinned yet
+	 * 
+	 * @param max the max number of chunks loaded
+	 */
+	void loadNext(int max) {
+		if (!pinned)
+			return;
+
+		int loaded = 0;
+		while (cursor < keys.length && loaded < max) {
+			int i = cursor++;
+			if (ticketed[i])
+				continue;
+
+			// chunks loaded meanwhile don't count
+			if (!world.isChunkLoaded(x(keys[i]), z(keys[i]))) {
+				world.loadChunk(x(keys[i]), z(keys[i]));
+				loaded++;
+			}
+			ticket(i);
+		}
+	}
+
+	/**
+	 * check if every chunk is loaded and pinned
+	 * 
+	 * @return true if every chunk is pinned
+	 */
+	boolean isLoaded() {
+		while (cursor < keys.length && ticketed[cursor])
+			cursor++;
+
+		return cursor == keys.length;
+	}
+
+	/**
+	 * load and pin now the chunks still not pinned
+	 */
+	void load() {
+		loadNext(Integer.MAX_VALUE);
+	}
+
+	private void ticket(int i) {
+		ticketed[i] = true;
+		world.addPluginChunkTicket(x(keys[i]), z(keys[i]), SiegeCraft.getInstance());
+	}
+
+	// chunks of the square around the location
+	private static void addSquare(Set<Long> chunks, Location l, int radius) {
+		if (l == null)
+			return;
+
+		for (int x = (l.getBlockX() - radius) >> 4; x <= (l.getBlockX() + radius) >> 4; x++)
+			for (int z = (l.getBlockZ() - radius) >> 4; z <= (l.getBlockZ() + radius) >> 4; z++)
+				chunks.add(key(x, z));
+	}
+
+	// chunks touching the circle around the location
+	private static void addDisk(Set<Long> chunks, Location l, int radius) {
+		if (l == null)
+			return;
+
+		int cx = l.getBlockX();
+		int cz = l.getBlockZ();
+
+		for (int x = (cx - radius) >> 4; x <= (cx + radius) >> 4; x++)
+			for (int z = (cz - radius) >> 4; z <= (cz + radius) >> 4; z++) {
+				// nearest block of the chunk to the center
+				long dx = Math.max(x << 4, Math.min(cx, (x << 4) + 15)) - cx;
+				long dz = Math.max(z << 4, Math.min(cz, (z << 4) + 15)) - cz;
+				if (dx * dx + dz * dz <= (long) radius * radius)
+					chunks.add(key(x, z));
+			}
+	}
+
+	// chunks along the straight line between the towers
+	private static void addLane(Set<Long> chunks, Location from, Location to) {
+		double length = Math.hypot(to.getX() - from.getX(), to.getZ() - from.getZ());
+		int steps = Math.max(1, (int) Math.ceil(length / LANE_STEP));
+
+		for (int i = 0; i <= steps; i++) {
+			Location l = from.clone().add(to.clone().subtract(from).multiply((double) i / steps));
+			addSquare(chunks, l, LANE_WIDTH);
+		}
+	}
+
+	private static long key(int x, int z) {
+		return (long) x << 32 | (z & 0xffffffffL);
+	}
+
+	private static int x(long key) {
+		return (int) (key >> 32);
+	}
+
+	private static int z(long key) {
+		return (int) key;
+	}
+}
@@ -0,0 +1,118 @@
+package com.siege.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * support class used to create new instances of an arena and to load their
+ * worlds. The world of the arena is copied at region file level with
+ * {@link FileChannel#transferTo} and the arena files are rewritten for the new
+ * world, so every method can be called outside the bukkit thread
+ * 
+ * @author Tommaso
+ *
+ */
+final class ArenaCloner {
+
+	// files identifying a single world which must not be copied
+	private static final List<String> SKIPPED = Arrays.asList("uid.dat", "session.lock");
+
+	private ArenaCloner() {
+		throw new IllegalAccessError("Cannot instantiate this class");
+	}
+
+	/**
+	 * copy a world folder
+	 * 
+	 * @param from the world folder to copy
+	 * @param to   the folder of the new world
+	 * @throws IOException if a file cannot be copied
+	 */
+	static void copyWorld(File from, File to) throws IOException {
+		if (!to.mkdirs() && !to.isDirectory())
+			throw new IOException("Cannot create folder " + to);
+
+		File[] files = from.listFiles();
+		if (files == null)
+			throw new IOException("Cannot read folder " + from);
+
+		for (File f : files)
+			if (f.isDirectory())
+				copyWorld(f, new File(to, f.getName()));
+			else if (!SKIPPED.contains(f.getName()))
+				copyFile(f, new File(to, f.getName()));
+	}
+
+	/**
+	 * read every file of a world folder so that the next world load is served by
+	 * the disk cache. Errors are ignored, the world will be read from disk
+	 * 
+	 * @param folder the world folder
+	 */
+	static void readWorld(File folder) {
+		File[] files = folder.listFiles();
+		if (files == null)
+			return;
+
+		for (File f : files)
+			if (f.isDirectory())
+				readWorld(f);
+			else
+				try (FileChannel in = FileChannel.open(f.toPath(), StandardOpenOption.READ)) {
+					ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+					while (in.read(buffer) > 0)
+						buffer.clear();
+				} catch (IOException e) {
+					;
+				}
+	}
+
+	/**
+	 * write the arena files of a new instance moving every location in its world
+	 * 
+	 * @param files  the arena files by file name
+	 * @param folder the folder of the new arena
+	 * @param world  the name of the world of the new arena
+	 * @throws IOException if a file cannot be written
+	 */
+	static void writeArena(Map<String, Map<String, ?>> files, File folder, String world) throws IOException {
+		if (!folder.mkdirs() && !folder.isDirectory())
+			throw new IOException("Cannot create folder " + folder);
+
+		for (Map.Entry<String, Map<String, ?>> e : files.entrySet()) {
+			renameWorld(e.getValue(), world);
+			SiegeArena.write(e.getValue(), new File(folder, e.getKey()));
+		}
+	}
+
+	// the region files are copied without passing through the java heap
+	private static void copyFile(File from, File to) throws IOException {
+		try (FileChannel in = FileChannel.open(from.toPath(), StandardOpenOption.READ);
+				FileChannel out = FileChannel.open(to.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+						StandardOpenOption.TRUNCATE_EXISTING)) {
+			long size = in.size();
+			long position = 0;
+
+			while (position < size)
+				position += in.transferTo(position, size - position, out);
+		}
+	}
+
+	// serialized locations store the world name in the "world" key
+	@SuppressWarnings("unchecked")
+	private static void renameWorld(Map<String, ?> serialized, String world) {
+		Map<String, Object> tmp = (Map<String, Object>) serialized;
+
+		for (Map.Entry<String, Object> e : tmp.entrySet())
+			if (e.getKey().equals("world"))
+				e.setValue(world);
+			else if (e.getValue() instanceof Map)
+				renameWorld((Map<String, ?>) e.getValue(), world);
+	}
+}
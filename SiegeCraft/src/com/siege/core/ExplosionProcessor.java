@@ -0,0 +1,97 @@
+package com.siege.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.Particle;
+import org.bukkit.Sound;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+
+import com.siege.data.constants.EffectQuality;
+
+import siege.util.BukkitRestricted;
+
+/**
+ * explosions of an arena. The placed blocks of an explosion footprint are taken
+ * from the index with a single query and removed at once, since they are
+ * gameplay, while the explosion visuals (particles and sound only, they never
+ * hurt or push players) made in the same tick close to each other are merged
+ * into a single effect shown on the next tick with time left
+ * 
+ * @author Tommaso
+ *
+ */
+@BukkitRestricted
+final class ExplosionProcessor {
+
+	// distance in which explosion visuals of the same tick are merged, wider
+	// when the effect quality is at the lowest level
+	private static final double MERGE_RADIUS_SQUARED = 4 * 4;
+	private static final double WIDE_MERGE_RADIUS_SQUARED = 12 * 12;
+
+	private final PlacedBlocks placed;
+	private final Consumer<Block> changed;
+
+	// explosion visuals waiting for the next tick
+	private final List<Location> effects = new ArrayList<>();
+
+	/**
+	 * create the explosion processor of an arena
+	 * 
+	 * @param placed  the blocks placed by the players
+	 * @param changed function receiving every removed block
+	 */
+	ExplosionProcessor(PlacedBlocks placed, Consumer<Block> changed) {
+		this.placed = placed;
+		this.changed = changed;
+	}
+
+	/**
+	 * destroy the placed blocks of an explosion footprint and show the explosion
+	 * 
+	 * @param center    the center of the explosion
+	 * @param footprint the blocks reached by the explosion
+	 */
+	void explode(Location center, List<Block> footprint) {
+		for (Block b : placed.take(footprint)) {
+			b.setType(Material.AIR);
+			changed.accept(b);
+		}
+
+		effect(center);
+	}
+
+	/**
+	 * show the particles and the sound of an explosion, without destroying blocks
+	 * or damaging players
+	 * 
+	 * @param center the center of the explosion
+	 */
+	void effect(Location center) {
+		double radius = SiegeCraft.getInstance().getEffectQuality().reaches(EffectQuality.MERGED_EXPLOSIONS)
+				? WIDE_MERGE_RADIUS_SQUARED
+				: MERGE_RADIUS_SQUARED;
+
+		for (Location l : effects)
+			if (l.getWorld() == center.getWorld() && l.distanceSquared(center) < radius)
+				return;
+
+		if (effects.isEmpty())
+			SiegeTask.deferrable("explosion effects", this::flush).runLater(1);
+		effects.add(center.clone());
+	}
+
+	// show the explosion visuals of the last tick
+	private void flush() {
+		for (Location l : effects) {
+			World w = l.getWorld();
+			w.spawnParticle(Particle.EXPLOSION_LARGE, l, 1);
+			w.playSound(l, Sound.ENTITY_GENERIC_EXPLODE, 4, 1);
+		}
+		effects.clear();
+	}
+}
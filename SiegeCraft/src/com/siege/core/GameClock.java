@@ -0,0 +1,110 @@
+package com.siege.core;
+
+/**
+ * clock of a game based on the real time instead of the server ticks, so games
+ * last the same time when the server is late. Periodic events are due when
+ * their time has passed and the ones missed while the server was stuck are
+ * caught up by polling until they are no more due
+ * 
+ * @author Tommaso
+ *
+ */
+final class GameClock {
+
+	private static final long SECOND = 1_000_000_000;
+
+	private final long start;
+	private long end;
+
+	/**
+	 * start a clock
+	 * 
+	 * @param seconds the game length
+	 */
+	GameClock(int seconds) {
+		start = System.nanoTime();
+		end = start + seconds * SECOND;
+	}
+
+	/**
+	 * get the real time since the clock started
+	 * 
+	 * @return the elapsed time in milliseconds
+	 */
+	long getElapsed() {
+		return (System.nanoTime() - start) / 1_000_000;
+	}
+
+	/**
+	 * get the time left
+	 * 
+	 * @return the seconds left rounded up, 0 when the game is over
+	 */
+	int getRemaining() {
+		return secondsTo(end);
+	}
+
+	/**
+	 * end the game now
+	 */
+	void expire() {
+		long now = System.nanoTime();
+		if (end - now > 0)
+			end = now;
+	}
+
+	/**
+	 * create an event due every period of time from the clock start
+	 * 
+	 * @param seconds the period
+	 * @return the periodic event
+	 */
+	Period every(int seconds) {
+		return new Period(Math.max(1, seconds) * SECOND);
+	}
+
+	private int secondsTo(long time) {
+		long left = time - System.nanoTime();
+		return left <= 0 ? 0 : (int) ((left + SECOND - 1) / SECOND);
+	}
+
+	/**
+	 * event of the clock due periodically
+	 * 
+	 * @author Tommaso
+	 *
+	 */
+	final class Period {
+
+		private final long length;
+		private long next;
+
+		private Period(long length) {
+			this.length = length;
+			this.next = start + length;
+		}
+
+		/**
+		 * check if the event is due and move it to the next period. Call it until it
+		 * returns false to run the events missed
+		 * 
+		 * @return true if the event is due
+		 */
+		boolean poll() {
+			if (System.nanoTime() - next < 0)
+				return false;
+
+			next += length;
+			return true;
+		}
+
+		/**
+		 * get the time before the event
+		 * 
+		 * @return the seconds left rounded up
+		 */
+		int getRemaining() {
+			return secondsTo(next);
+		}
+	}
+}
@@ -0,0 +1,226 @@
+package com.siege.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import siege.exeptions.SiegeException;
+
+/**
+ * immutable settings of the games of an arena. Settings are validated once when
+ * built and changed by building new settings, so they can be read by any
+ * thread and swapped with a single assignment
+ * 
+ * @author Tommaso
+ *
+ */
+final class GameSettings {
+
+	/**
+	 * settings of a new arena
+	 */
+	static final GameSettings DEFAULT = new GameSettings(180, 50, 30, 1200, 1, 3, 4, 5);
+
+	private final int robotSpawnDelay;
+	private final int powerupSpawnRadius;
+	private final int powerupSpawnDelay;
+	private final int maxPlayTime;
+	private final int minTeamSize;
+	private final int maxTeamSize;
+	private final int powerupDropHeight;
+	private final int startCountdown;
+
+	private GameSettings(int robotSpawnDelay, int powerupSpawnRadius, int powerupSpawnDelay, int maxPlayTime,
+			int minTeamSize, int maxTeamSize, int powerupDropHeight, int startCountdown) {
+		if (robotSpawnDelay <= 0 || powerupSpawnRadius <= 0 || powerupSpawnDelay <= 0 || maxPlayTime <= 0)
+			throw new SiegeException("Delays, radius and play time must be positive");
+
+		if (minTeamSize <= 0 || maxTeamSize < minTeamSize)
+			throw new SiegeException("Team sizes must be positive and max team size must be at least min team size");
+
+		if (powerupDropHeight < 0 || startCountdown < 0)
+			throw new SiegeException("Drop height and start countdown must not be negative");
+
+		this.robotSpawnDelay = robotSpawnDelay;
+		this.powerupSpawnRadius = powerupSpawnRadius;
+		this.powerupSpawnDelay = powerupSpawnDelay;
+		this.maxPlayTime = maxPlayTime;
+		this.minTeamSize = minTeamSize;
+		this.maxTeamSize = maxTeamSize;
+		this.powerupDropHeight = powerupDropHeight;
+		this.startCountdown = startCountdown;
+	}
+
+	/**
+	 * load settings from a configuration. Missing settings take the default value
+	 * 
+	 * @param c the configuration
+	 * @return the settings
+	 * 
+	 * @throws SiegeException if a setting is not an integer or not valid
+	 */
+	static GameSettings load(ConfigurationSection c) {
+		return new GameSettings(get(c, "robotSpawnDelay", DEFAULT.robotSpawnDelay),
+				get(c, "powerupSpawnRadius", DEFAULT.powerupSpawnRadius),
+				get(c, "powerupSpawnDelay", DEFAULT.powerupSpawnDelay), get(c, "maxPlayTime", DEFAULT.maxPlayTime),
+				get(c, "minTeamSize", DEFAULT.minTeamSize), get(c, "maxTeamSize", DEFAULT.maxTeamSize),
+				get(c, "powerupDropHeight", DEFAULT.powerupDropHeight),
+				get(c, "startCountdown", DEFAULT.startCountdown));
+	}
+
+	/**
+	 * load settings from a map, like the ones saved by the old versions
+	 * 
+	 * @param m the settings by name
+	 * @return the settings
+	 * 
+	 * @throws SiegeException if a setting is not an integer or not valid
+	 */
+	static GameSettings load(Map<String, ?> m) {
+		YamlConfiguration c = new YamlConfiguration();
+		m.forEach(c::set);
+		return load(c);
+	}
+
+	/**
+	 * read settings from a yaml file
+	 * 
+	 * @param f the file
+	 * @return the settings
+	 * 
+	 * @throws IOException                   if the file cannot be read
+	 * @throws InvalidConfigurationException if the file is not valid yaml
+	 * @throws SiegeException                if a setting is not an integer or not
+	 *                                       valid
+	 */
+	static GameSettings read(File f) throws IOException, InvalidConfigurationException {
+		YamlConfiguration c = new YamlConfiguration();
+		c.load(f);
+		return load(c);
+	}
+
+	/**
+	 * read settings from a yaml file edited while the plugin runs. Every setting
+	 * must be in the file, a file missing some of them may be still being written
+	 * 
+	 * @param f the file
+	 * @return the settings
+	 * 
+	 * @throws IOException                   if the file cannot be read
+	 * @throws InvalidConfigurationException if the file is not valid yaml
+	 * @throws SiegeException                if a setting is missing, is not an
+	 *                                       integer or is not valid
+	 */
+	static GameSettings reload(File f) throws IOException, InvalidConfigurationException {
+		YamlConfiguration c = new YamlConfiguration();
+		c.load(f);
+
+		for (String key : DEFAULT.serialize().keySet())
+			if (!c.contains(key))
+				throw new SiegeException("Setting " + key + " is missing");
+		return load(c);
+	}
+
+	/**
+	 * serialize these settings for a configuration file
+	 * 
+	 * @return the settings by name
+	 */
+	Map<String, Object> serialize() {
+		LinkedHashMap<String, Object> tmp = new LinkedHashMap<>();
+		tmp.put("robotSpawnDelay", robotSpawnDelay);
+		tmp.put("powerupSpawnRadius", powerupSpawnRadius);
+		tmp.put("powerupSpawnDelay", powerupSpawnDelay);
+		tmp.put("maxPlayTime", maxPlayTime);
+		tmp.put("minTeamSize", minTeamSize);
+		tmp.put("maxTeamSize", maxTeamSize);
+		tmp.put("powerupDropHeight", powerupDropHeight);
+		tmp.put("startCountdown", startCountdown);
+		return tmp;
+	}
+
+	/**
+	 * copy these settings with a new powerup area
+	 * 
+	 * @param delay  seconds between two powerups
+	 * @param radius radius of the powerup area
+	 * @return the new settings
+	 * 
+	 * @throws SiegeException if a value is not valid
+	 */
+	GameSettings withPowerupSpawn(int delay, int radius) {
+		return new GameSettings(robotSpawnDelay, radius, delay, maxPlayTime, minTeamSize, maxTeamSize,
+				powerupDropHeight, startCountdown);
+	}
+
+	/**
+	 * copy these settings with a new game length
+	 * 
+	 * @param playTime   max play time in seconds
+	 * @param robotDelay seconds between two robot spawns
+	 * @return the new settings
+	 * 
+	 * @throws SiegeException if a value is not valid
+	 */
+	GameSettings withGameTime(int playTime, int robotDelay) {
+		return new GameSettings(robotDelay, powerupSpawnRadius, powerupSpawnDelay, playTime, minTeamSize,
+				maxTeamSize, powerupDropHeight, startCountdown);
+	}
+
+	int getRobotSpawnDelay() {
+		return robotSpawnDelay;
+	}
+
+	int getPowerupSpawnRadius() {
+		return powerupSpawnRadius;
+	}
+
+	int getPowerupSpawnDelay() {
+		return powerupSpawnDelay;
+	}
+
+	int getMaxPlayTime() {
+		return maxPlayTime;
+	}
+
+	int getMinTeamSize() {
+		return minTeamSize;
+	}
+
+	int getMaxTeamSize() {
+		return maxTeamSize;
+	}
+
+	int getPowerupDropHeight() {
+		return powerupDropHeight;
+	}
+
+	int getStartCountdown() {
+		return startCountdown;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		return o instanceof GameSettings && serialize().equals(((GameSettings) o).serialize());
+	}
+
+	@Override
+	public int hashCode() {
+		return serialize().hashCode();
+	}
+
+	// integer setting, checking its type instead of falling back to 0
+	private static int get(ConfigurationSection c, String key, int def) {
+		if (!c.contains(key))
+			return def;
+
+		if (!c.isInt(key))
+			throw new SiegeException("Setting " + key + " must be an integer");
+		return c.getInt(key);
+	}
+}
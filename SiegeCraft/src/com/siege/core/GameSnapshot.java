@@ -0,0 +1,299 @@
+package com.siege.core;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.bukkit.entity.Player;
+
+import com.siege.data.Robot;
+import com.siege.data.Tower;
+import com.siege.data.constants.SiegeColor;
+
+/**
+ * read only state of the games of every arena, built by the bukkit thread once
+ * per tick. Snapshots hold only primitives, strings and ids and are never
+ * changed after being published, so any thread can read them without locks and
+ * without waiting for the bukkit thread. A snapshot is at most one tick old
+ * 
+ * @author Tommaso
+ *
+ */
+public final class GameSnapshot {
+
+	/**
+	 * snapshot published before the first tick
+	 */
+	public static final GameSnapshot EMPTY = new GameSnapshot(0, 0, Collections.emptyMap());
+
+	private final long tick;
+	private final long time;
+	private final Map<String, Arena> arenas;
+
+	private GameSnapshot(long tick, long time, Map<String, Arena> arenas) {
+		this.tick = tick;
+		this.time = time;
+		this.arenas = arenas;
+	}
+
+	/**
+	 * build the snapshot of the arenas. Arenas whose world is not loaded have no
+	 * towers in the snapshot
+	 * 
+	 * @param tick   the plugin tick
+	 * @param arenas the registered arenas
+	 * @return the new snapshot
+	 */
+	static GameSnapshot of(long tick, Collection<SiegeArena> arenas) {
+		LinkedHashMap<String, Arena> tmp = new LinkedHashMap<>();
+		for (SiegeArena a : arenas)
+			tmp.put(a.getId(), a.snapshot());
+
+		return new GameSnapshot(tick, System.currentTimeMillis(), Collections.unmodifiableMap(tmp));
+	}
+
+	/**
+	 * get the plugin tick in which this snapshot has been built
+	 * 
+	 * @return the tick
+	 */
+	public long getTick() {
+		return tick;
+	}
+
+	/**
+	 * get the time in which this snapshot has been built
+	 * 
+	 * @return the time in milliseconds since the epoch
+	 */
+	public long getTime() {
+		return time;
+	}
+
+	/**
+	 * get the state of every arena
+	 * 
+	 * @return an unmodifiable map of the arenas by id
+	 */
+	public Map<String, Arena> getArenas() {
+		return arenas;
+	}
+
+	/**
+	 * get the state of an arena
+	 * 
+	 * @param id the arena id
+	 * @return the arena state or null if the arena doesn't exist
+	 */
+	public Arena getArena(String id) {
+		return arenas.get(id);
+	}
+
+	/**
+	 * state of the game of an arena
+	 * 
+	 * @author Tommaso
+	 *
+	 */
+	public static final class Arena {
+
+		private final String id;
+		private final boolean playing;
+		private final int time;
+		private final Team blue;
+		private final Team red;
+
+		Arena(String id, boolean playing, int time, Team blue, Team red) {
+			this.id = id;
+			this.playing = playing;
+			this.time = time;
+			this.blue = blue;
+			this.red = red;
+		}
+
+		/**
+		 * get the arena id
+		 * 
+		 * @return the id
+		 */
+		public String getId() {
+			return id;
+		}
+
+		/**
+		 * check if a game is running, countdown included
+		 * 
+		 * @return true if playing
+		 */
+		public boolean isPlaying() {
+			return playing;
+		}
+
+		/**
+		 * get the time left of the game
+		 * 
+		 * @return the seconds left
+		 */
+		public int getTime() {
+			return time;
+		}
+
+		/**
+		 * get the state of a team
+		 * 
+		 * @param color the team color
+		 * @return the team state
+		 */
+		public Team getTeam(SiegeColor color) {
+			return color == SiegeColor.BLUE ? blue : red;
+		}
+	}
+
+	/**
+	 * state of a team, its tower and its robots
+	 * 
+	 * @author Tommaso
+	 *
+	 */
+	public static final class Team {
+
+		private final boolean tower;
+		private final int health;
+		private final int powerups;
+		private final List<RobotState> robots;
+		private final List<UUID> players;
+		private final List<String> names;
+
+		/**
+		 * copy the state of a team
+		 * 
+		 * @param t       the team tower or null
+		 * @param players the team players
+		 */
+		Team(Tower t, List<Player> players) {
+			this.tower = t != null;
+			this.health = t != null ? Math.max(0, t.getHealth()) : 0;
+			this.powerups = t != null ? t.getPowerups() : 0;
+
+			List<RobotState> robots = new ArrayList<>();
+			if (t != null)
+				for (Robot r : t.getAllyRobots().values())
+					if (!r.isDead())
+						robots.add(new RobotState(r.getRobot().getUniqueId(), r.getHealth(), r.getDamage()));
+			this.robots = Collections.unmodifiableList(robots);
+
+			List<UUID> ids = new ArrayList<>(players.size());
+			List<String> names = new ArrayList<>(players.size());
+			for (Player p : players) {
+				ids.add(p.getUniqueId());
+				names.add(p.getName());
+			}
+			this.players = Collections.unmodifiableList(ids);
+			this.names = Collections.unmodifiableList(names);
+		}
+
+		/**
+		 * check if the team tower is set and loaded
+		 * 
+		 * @return true if the tower is in the snapshot
+		 */
+		public boolean hasTower() {
+			return tower;
+		}
+
+		/**
+		 * get the health of the tower
+		 * 
+		 * @return the health, 0 if destroyed or missing
+		 */
+		public int getHealth() {
+			return health;
+		}
+
+		/**
+		 * get the powerups of the tower
+		 * 
+		 * @return the powerups
+		 */
+		public int getPowerups() {
+			return powerups;
+		}
+
+		/**
+		 * get the robots of the team alive
+		 * 
+		 * @return an unmodifiable list of robots
+		 */
+		public List<RobotState> getRobots() {
+			return robots;
+		}
+
+		/**
+		 * get the ids of the team players
+		 * 
+		 * @return an unmodifiable list of ids
+		 */
+		public List<UUID> getPlayers() {
+			return players;
+		}
+
+		/**
+		 * get the names of the team players, in the same order of the ids
+		 * 
+		 * @return an unmodifiable list of names
+		 */
+		public List<String> getNames() {
+			return names;
+		}
+	}
+
+	/**
+	 * state of a robot
+	 * 
+	 * @author Tommaso
+	 *
+	 */
+	public static final class RobotState {
+
+		private final UUID id;
+		private final int health;
+		private final int damage;
+
+		private RobotState(UUID id, int health, int damage) {
+			this.id = id;
+			this.health = health;
+			this.damage = damage;
+		}
+
+		/**
+		 * get the id of the robot entity
+		 * 
+		 * @return the entity id
+		 */
+		public UUID getId() {
+			return id;
+		}
+
+		/**
+		 * get the health of the robot
+		 * 
+		 * @return the health
+		 */
+		public int getHealth() {
+			return health;
+		}
+
+		/**
+		 * get the damage of the robot
+		 * 
+		 * @return the damage per hit
+		 */
+		public int getDamage() {
+			return damage;
+		}
+	}
+}
@@ -0,0 +1,128 @@
+package com.siege.core;
+
+import java.util.ArrayDeque;
+import java.util.List;
+
+import org.bukkit.ChatColor;
+import org.bukkit.entity.Player;
+
+import com.siege.data.SiegeAnnouncer;
+import com.siege.data.SiegeAnnouncer.Audience;
+import com.siege.data.SiegeBoard;
+import com.siege.data.SiegeKit;
+import com.siege.data.SiegeRoster;
+import com.siege.data.constants.SiegeColor;
+
+import siege.util.BukkitRestricted;
+
+/**
+ * countdown before a game. The chunks of the game already loaded are pinned
+ * when the countdown starts, the missing ones are loaded and pinned a few per
+ * tick, then the work needed to start the game is split in stages run in order
+ * inside a time budget per tick:
+ * powerup area sampling, teleports to the team spawns, kits and scoreboard. The
+ * game clock starts when the countdown is over and every stage is done, so a
+ * late stage delays the start instead of spiking a tick
+ * 
+ * @author Tommaso
+ *
+ */
+@BukkitRestricted
+final class GameStart extends SiegeTask {
+
+	// max time spent on start work in a tick
+	private static final long TICK_BUDGET = 2_000_000;
+
+	// chunks loaded in a tick during the countdown
+	private static final int CHUNKS_PER_TICK = 4;
+
+	private final SiegeGame game;
+	private final ArenaChunks chunks;
+	private final SiegeAnnouncer announcer;
+
+	// start work in stage order
+	private final ArrayDeque<Runnable> jobs = new ArrayDeque<>();
+
+	private int ticks;
+	private boolean loaded;
+
+	/**
+	 * queue the start work of a game and start the countdown
+	 * 
+	 * @param game      the game to start
+	 * @param chunks    the chunks of the game
+	 * @param roster    the players of the game
+	 * @param board     the game scoreboard
+	 * @param announcer the arena announcer
+	 * @param slice     the arena slice
+	 */
+	GameStart(SiegeGame game, ArenaChunks chunks, SiegeRoster roster, SiegeBoard board, SiegeAnnouncer announcer,
+			SiegeScheduler.Slice slice) {
+		super("game start");
+		this.game = game;
+		this.chunks = chunks;
+		this.announcer = announcer;
+		this.ticks = game.getSettings().getStartCountdown() * 20;
+
+		List<Player> players = roster.getPlayers();
+		SiegeKit kit = SiegeCraft.getInstance().getKit(SiegeCraft.DEFAULT_KIT);
+
+		chunks.pin();
+
+		// chunks still loading at the end of the countdown are loaded first
+		jobs.add(chunks::load);
+		jobs.add(game::sampleLanding);
+
+		for (Player p : players)
+			jobs.add(() -> {
+				if (p.isOnline())
+					p.teleport(roster.teamOf(p) == SiegeColor.RED ? game.getRedSpawn() : game.getBlueSpawn());
+			});
+
+		for (Player p : players)
+			jobs.add(() -> {
+				if (p.isOnline())
+					kit.apply(p);
+			});
+
+		jobs.add(board::enable);
+		for (Player p : players)
+			jobs.add(() -> {
+				if (p.isOnline())
+					board.show(p);
+			});
+
+		slice.runTimer(this, 1);
+	}
+
+	@Override
+	public void run() {
+		// stages wait for the chunks, loaded a few per tick
+		if (!loaded) {
+			chunks.loadNext(CHUNKS_PER_TICK);
+			loaded = chunks.isLoaded() || ticks == 0;
+		}
+
+		if (loaded) {
+			long start = System.nanoTime();
+
+			Runnable r;
+			while (System.nanoTime() - start < TICK_BUDGET && (r = jobs.poll()) != null)
+				r.run();
+		}
+
+		if (ticks > 0) {
+			if (ticks % 20 == 0)
+				announcer.title(Audience.ARENA, ChatColor.GOLD + "Game starts in " + ticks / 20, "");
+			ticks--;
+			return;
+		}
+
+		// the clock waits for the last stage
+		if (!jobs.isEmpty())
+			return;
+
+		cancel();
+		game.play();
+	}
+}
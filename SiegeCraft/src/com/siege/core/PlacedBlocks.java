@@ -0,0 +1,127 @@
+package com.siege.core;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import org.bukkit.World;
+import org.bukkit.block.Block;
+
+import siege.util.BukkitRestricted;
+
+/**
+ * blocks placed by the players in an arena, grouped by chunk. Blocks are stored
+ * as their position inside the chunk, so checks don't create locations and the
+ * blocks of an explosion are matched against the few chunks it touches
+ * 
+ * @author Tommaso
+ *
+ */
+@BukkitRestricted
+final class PlacedBlocks {
+
+	// positions inside the chunk by chunk key
+	private final HashMap<Long, HashSet<Integer>> chunks = new HashMap<>();
+
+	// world of the placed blocks
+	private World world;
+
+	/**
+	 * record a placed block
+	 * 
+	 * @param b the block
+	 */
+	void add(Block b) {
+		world = b.getWorld();
+		chunks.computeIfAbsent(chunkKey(b), e -> new HashSet<>()).add(local(b));
+	}
+
+	/**
+	 * forget a block
+	 * 
+	 * @param b the block
+	 */
+	void remove(Block b) {
+		HashSet<Integer> chunk = chunks.get(chunkKey(b));
+		if (chunk != null && chunk.remove(local(b)) && chunk.isEmpty())
+			chunks.remove(chunkKey(b));
+	}
+
+	/**
+	 * check if a block has been placed by a player
+	 * 
+	 * @param b the block
+	 * @return true if the block is recorded
+	 */
+	boolean contains(Block b) {
+		if (b.getWorld() != world)
+			return false;
+
+		HashSet<Integer> chunk = chunks.get(chunkKey(b));
+		return chunk != null && chunk.contains(local(b));
+	}
+
+	/**
+	 * take the placed blocks of a footprint. The chunks touched by the footprint
+	 * are looked up once and the returned blocks are forgotten
+	 * 
+	 * @param footprint the blocks
+	 * @return the placed blocks of the footprint
+	 */
+	List<Block> take(List<Block> footprint) {
+		List<Block> placed = new ArrayList<>();
+		if (footprint.isEmpty() || footprint.get(0).getWorld() != world)
+			return placed;
+
+		// chunks of the footprint, usually one or two
+		HashMap<Long, HashSet<Integer>> touched = new HashMap<>();
+		for (Block b : footprint) {
+			long key = chunkKey(b);
+			if (!touched.containsKey(key))
+				touched.put(key, chunks.get(key));
+		}
+
+		for (Block b : footprint) {
+			HashSet<Integer> chunk = touched.get(chunkKey(b));
+			if (chunk != null && chunk.remove(local(b)))
+				placed.add(b);
+		}
+
+		for (Long key : touched.keySet()) {
+			HashSet<Integer> chunk = chunks.get(key);
+			if (chunk != null && chunk.isEmpty())
+				chunks.remove(key);
+		}
+
+		return placed;
+	}
+
+	/**
+	 * forget every block passing it to a function
+	 * 
+	 * @param f the function receiving the blocks
+	 */
+	void clear(Consumer<Block> f) {
+		for (Map.Entry<Long, HashSet<Integer>> e : chunks.entrySet()) {
+			int cx = (int) (e.getKey() >> 32) << 4;
+			int cz = e.getKey().intValue() << 4;
+
+			for (int l : e.getValue())
+				f.accept(world.getBlockAt(cx | (l >> 4 & 15), l >> 8, cz | (l & 15)));
+		}
+
+		chunks.clear();
+	}
+
+	private static long chunkKey(Block b) {
+		return (long) (b.getX() >> 4) << 32 | ((b.getZ() >> 4) & 0xffffffffL);
+	}
+
+	// y in the high bits, then x and z inside the chunk
+	private static int local(Block b) {
+		return b.getY() << 8 | (b.getX() & 15) << 4 | (b.getZ() & 15);
+	}
+}
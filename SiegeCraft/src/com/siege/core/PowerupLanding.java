@@ -0,0 +1,154 @@
+package com.siege.core;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Predicate;
+
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.block.BlockFace;
+
+import siege.util.BukkitRestricted;
+
+/**
+ * ground positions of the powerup area where powerups can land. The area is
+ * sampled once from the chunk heightmaps at game start and single columns are
+ * checked again when their blocks change, so a powerup never lands in the void,
+ * in a liquid, on a player block or on a tower
+ * 
+ * @author Tommaso
+ *
+ */
+@BukkitRestricted
+final class PowerupLanding {
+
+	// columns around a tower where powerups don't land
+	private static final int TOWER_CLEARANCE = 2;
+
+	private final World world;
+	private final int centerX;
+	private final int centerZ;
+	private final int radius;
+
+	private final List<Location> towers;
+	private final Predicate<Block> placed;
+
+	// valid ground blocks and their position in the list by column
+	private final ArrayList<Location> points = new ArrayList<>();
+	private final HashMap<Long, Integer> index = new HashMap<>();
+
+	/**
+	 * sample the powerup area
+	 * 
+	 * @param center the center of the powerup area
+	 * @param radius the radius of the powerup area
+	 * @param towers the locations of the towers
+	 * @param placed check if a block has been placed by a player
+	 */
+	PowerupLanding(Location center, int radius, List<Location> towers, Predicate<Block> placed) {
+		this.world = center.getWorld();
+		this.centerX = center.getBlockX();
+		this.centerZ = center.getBlockZ();
+		this.radius = radius;
+		this.towers = towers;
+		this.placed = placed;
+
+		HashMap<Long, ChunkSnapshot> snapshots = new HashMap<>();
+
+		for (int x = centerX - radius; x <= centerX + radius; x++)
+			for (int z = centerZ - radius; z <= centerZ + radius; z++) {
+				if (!inArea(x, z))
+					continue;
+
+				int cx = x >> 4;
+				int cz = z >> 4;
+				ChunkSnapshot snapshot = snapshots.computeIfAbsent(key(cx, cz),
+						e -> world.getChunkAt(cx, cz).getChunkSnapshot(true, false, false));
+
+				int y = Math.min(snapshot.getHighestBlockYAt(x & 15, z & 15), world.getMaxHeight() - 1);
+				while (y > 0 && snapshot.getBlockType(x & 15, y, z & 15).isAir())
+					y--;
+
+				if (y > 0 && isGround(snapshot.getBlockType(x & 15, y, z & 15), x, z))
+					add(x, y, z);
+			}
+	}
+
+	/**
+	 * get a random landing point
+	 * 
+	 * @return the location over a valid ground block or null if there is none
+	 */
+	Location random() {
+		if (points.isEmpty())
+			return null;
+
+		return points.get(ThreadLocalRandom.current().nextInt(points.size())).clone().add(0.5, 1, 0.5);
+	}
+
+	/**
+	 * check again the column of a changed block
+	 * 
+	 * @param b the changed block
+	 */
+	void refresh(Block b) {
+		int x = b.getX();
+		int z = b.getZ();
+		if (b.getWorld() != world || !inArea(x, z))
+			return;
+
+		remove(x, z);
+
+		Block top = world.getHighestBlockAt(x, z);
+		while (top.getY() > 0 && top.getType().isAir())
+			top = top.getRelative(BlockFace.DOWN);
+
+		if (top.getY() > 0 && isGround(top.getType(), x, z) && !placed.test(top))
+			add(x, top.getY(), z);
+	}
+
+	// solid block away from the towers
+	private boolean isGround(Material m, int x, int z) {
+		if (!m.isSolid())
+			return false;
+
+		for (Location t : towers)
+			if (Math.abs(t.getBlockX() - x) <= TOWER_CLEARANCE && Math.abs(t.getBlockZ() - z) <= TOWER_CLEARANCE)
+				return false;
+
+		return true;
+	}
+
+	private boolean inArea(int x, int z) {
+		int dx = x - centerX;
+		int dz = z - centerZ;
+		return dx * dx + dz * dz <= radius * radius;
+	}
+
+	private void add(int x, int y, int z) {
+		index.put(key(x, z), points.size());
+		points.add(new Location(world, x, y, z));
+	}
+
+	// the last point takes the place of the removed one
+	private void remove(int x, int z) {
+		Integer i = index.remove(key(x, z));
+		if (i == null)
+			return;
+
+		Location last = points.remove(points.size() - 1);
+		if (i < points.size()) {
+			points.set(i, last);
+			index.put(key(last.getBlockX(), last.getBlockZ()), i);
+		}
+	}
+
+	private static long key(int x, int z) {
+		return (long) x << 32 | (z & 0xffffffffL);
+	}
+}
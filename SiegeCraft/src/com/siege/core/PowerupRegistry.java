@@ -0,0 +1,145 @@
+package com.siege.core;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.UUID;
+
+import org.bukkit.ChatColor;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.NamespacedKey;
+import org.bukkit.entity.Item;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.bukkit.persistence.PersistentDataType;
+import org.bukkit.util.Vector;
+
+import com.siege.data.constants.SiegeItems;
+
+import siege.util.BukkitRestricted;
+
+/**
+ * powerup items of an arena. Every powerup carries the arena id in its data
+ * container so that pickups are matched to their arena without looking at the
+ * location. A powerup landing near another one is merged into it and the
+ * number of powerup items is capped, over the cap the new powerups are added to
+ * the oldest item. Items left on the ground are removed when the game ends
+ * 
+ * @author Tommaso
+ *
+ */
+@BukkitRestricted
+final class PowerupRegistry {
+
+	// max powerup items alive in an arena
+	private static final int MAX_ITEMS = 32;
+
+	// distance in which powerups are merged
+	private static final double MERGE_RADIUS_SQUARED = 3 * 3;
+
+	private static final NamespacedKey KEY = new NamespacedKey(SiegeCraft.getInstance(), "powerup");
+
+	private final ItemStack powerup;
+
+	// powerups alive by entity uuid, in spawn order
+	private final LinkedHashMap<UUID, Item> items = new LinkedHashMap<>();
+
+	/**
+	 * create the registry of an arena
+	 * 
+	 * @param arena the arena id
+	 */
+	PowerupRegistry(String arena) {
+		powerup = SiegeItems.POWERUP();
+		ItemMeta meta = powerup.getItemMeta();
+		meta.getPersistentDataContainer().set(KEY, PersistentDataType.STRING, arena);
+		powerup.setItemMeta(meta);
+	}
+
+	/**
+	 * get the arena of a powerup
+	 * 
+	 * @param item the item
+	 * @return the arena id or null if the item is not a powerup
+	 */
+	static String arenaOf(Item item) {
+		ItemStack stack = item.getItemStack();
+		if (stack.getType() != Material.EMERALD || !stack.hasItemMeta())
+			return null;
+
+		return stack.getItemMeta().getPersistentDataContainer().get(KEY, PersistentDataType.STRING);
+	}
+
+	/**
+	 * spawn a powerup or add it to a powerup on the ground near the landing point
+	 * 
+	 * @param l      the landing point
+	 * @param height the height from which the powerup is dropped
+	 * @return the new item or null if the powerup has been merged or the cap has
+	 *         been reached by full stacks
+	 */
+	Item spawn(Location l, int height) {
+		Item target = null;
+		Item oldest = null;
+
+		for (Iterator<Item> it = items.values().iterator(); it.hasNext();) {
+			Item i = it.next();
+			if (i.isDead()) {
+				it.remove();
+				continue;
+			}
+
+			// full stacks cannot grow
+			if (i.getItemStack().getAmount() >= i.getItemStack().getMaxStackSize())
+				continue;
+
+			if (oldest == null)
+				oldest = i;
+			if (target == null && i.isOnGround() && i.getWorld() == l.getWorld()
+					&& i.getLocation().distanceSquared(l) < MERGE_RADIUS_SQUARED)
+				target = i;
+		}
+
+		// over the cap the oldest powerup grows
+		if (target == null && items.size() >= MAX_ITEMS) {
+			if (oldest == null)
+				return null;
+			target = oldest;
+		}
+
+		if (target != null) {
+			ItemStack stack = target.getItemStack();
+			stack.setAmount(stack.getAmount() + 1);
+			target.setItemStack(stack);
+			return null;
+		}
+
+		Item item = l.getWorld().dropItem(l.clone().add(0, height, 0), powerup.clone());
+		item.setVelocity(new Vector());
+
+		// set cutom item information
+		item.setGlowing(true);
+		item.setCustomName(ChatColor.GREEN + "POWERUP");
+		item.setCustomNameVisible(true);
+
+		items.put(item.getUniqueId(), item);
+		return item;
+	}
+
+	/**
+	 * forget a picked up powerup
+	 * 
+	 * @param item the powerup
+	 */
+	void remove(Item item) {
+		items.remove(item.getUniqueId());
+	}
+
+	/**
+	 * remove every powerup from the ground
+	 */
+	void clear() {
+		items.values().forEach(Item::remove);
+		items.clear();
+	}
+}
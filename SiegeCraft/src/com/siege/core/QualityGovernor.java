@@ -0,0 +1,96 @@
+package com.siege.core;
+
+import java.util.function.Consumer;
+
+import com.siege.data.constants.EffectQuality;
+
+import siege.util.BukkitRestricted;
+
+/**
+ * governor of the effect quality. It watches the average tick time of the last
+ * seconds and lowers the quality one level at a time while the server is late,
+ * then raises it back when the server keeps up again. Levels change at most
+ * once per window and the thresholds are apart, so the quality doesn't flap
+ * when the server is at the limit
+ * 
+ * @author Tommaso
+ *
+ */
+@BukkitRestricted
+final class QualityGovernor {
+
+	// ticks watched, 5 seconds
+	private static final int WINDOW = 100;
+
+	// average tick time lowering the quality (about 18 tps) and raising it back
+	private static final long DEGRADE_ABOVE = 55_000_000;
+	private static final long RECOVER_BELOW = 51_000_000;
+
+	private final Consumer<EffectQuality> changed;
+
+	// last tick times, as a ring
+	private final long[] ticks = new long[WINDOW];
+	private long sum;
+	private int next;
+
+	// ticks watched since the last change
+	private int watched;
+
+	private EffectQuality quality = EffectQuality.FULL;
+
+	/**
+	 * create the governor
+	 * 
+	 * @param changed function receiving the new level on every change
+	 */
+	QualityGovernor(Consumer<EffectQuality> changed) {
+		this.changed = changed;
+	}
+
+	/**
+	 * add the time of the last tick
+	 * 
+	 * @param nanos time between the start of the last two ticks
+	 */
+	void sample(long nanos) {
+		sum += nanos - ticks[next];
+		ticks[next] = nanos;
+		next = (next + 1) % WINDOW;
+
+		// wait a full window of ticks at the current level
+		if (++watched < WINDOW)
+			return;
+
+		long average = sum / WINDOW;
+		EffectQuality[] levels = EffectQuality.values();
+
+		if (average > DEGRADE_ABOVE && quality.ordinal() < levels.length - 1)
+			set(levels[quality.ordinal() + 1]);
+		else if (average < RECOVER_BELOW && quality.ordinal() > 0)
+			set(levels[quality.ordinal() - 1]);
+	}
+
+	/**
+	 * get the current level
+	 * 
+	 * @return the effect quality
+	 */
+	EffectQuality getQuality() {
+		return quality;
+	}
+
+	/**
+	 * get the average tick time of the window
+	 * 
+	 * @return the average in nanoseconds
+	 */
+	long getAverage() {
+		return sum / WINDOW;
+	}
+
+	private void set(EffectQuality q) {
+		quality = q;
+		watched = 0;
+		changed.accept(q);
+	}
+}
@@ -0,0 +1,115 @@
+package com.siege.core;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.UUID;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.util.BoundingBox;
+
+import siege.util.BukkitRestricted;
+
+/**
+ * regions of the loaded arenas by world and chunk. Events outside every arena
+ * are discarded with two map lookups, only the arenas whose region touches the
+ * chunk of the event check their bounding box
+ * 
+ * @author Tommaso
+ *
+ */
+@BukkitRestricted
+final class RegionIndex {
+
+	// arenas touching a chunk by world uid and chunk key
+	private final HashMap<UUID, HashMap<Long, List<SiegeArena>>> worlds = new HashMap<>();
+
+	// indexed world and chunk keys of every arena
+	private final HashMap<SiegeArena, Indexed> indexed = new HashMap<>();
+
+	/**
+	 * index the region of an arena, replacing the previous one
+	 * 
+	 * @param arena  the arena
+	 * @param world  the world of the arena
+	 * @param region the region of the arena or null to remove the arena
+	 */
+	void put(SiegeArena arena, World world, BoundingBox region) {
+		remove(arena);
+
+		if (world == null || region == null)
+			return;
+
+		HashMap<Long, List<SiegeArena>> chunks = worlds.computeIfAbsent(world.getUID(), e -> new HashMap<>());
+		List<Long> keys = new ArrayList<>();
+
+		for (int x = (int) Math.floor(region.getMinX()) >> 4; x <= (int) Math.floor(region.getMaxX()) >> 4; x++)
+			for (int z = (int) Math.floor(region.getMinZ()) >> 4; z <= (int) Math.floor(region.getMaxZ()) >> 4; z++) {
+				long key = key(x, z);
+				chunks.computeIfAbsent(key, e -> new ArrayList<>(1)).add(arena);
+				keys.add(key);
+			}
+
+		indexed.put(arena, new Indexed(world.getUID(), keys));
+	}
+
+	/**
+	 * remove an arena from the index
+	 * 
+	 * @param arena the arena
+	 */
+	void remove(SiegeArena arena) {
+		Indexed old = indexed.remove(arena);
+		if (old == null)
+			return;
+
+		HashMap<Long, List<SiegeArena>> chunks = worlds.get(old.world);
+		for (long key : old.keys) {
+			List<SiegeArena> list = chunks.get(key);
+			list.remove(arena);
+			if (list.isEmpty())
+				chunks.remove(key);
+		}
+
+		if (chunks.isEmpty())
+			worlds.remove(old.world);
+	}
+
+	/**
+	 * get the arena which region contains the location
+	 * 
+	 * @param l the location
+	 * @return the arena or null if the location is outside every arena
+	 */
+	SiegeArena at(Location l) {
+		HashMap<Long, List<SiegeArena>> chunks = worlds.get(l.getWorld().getUID());
+		if (chunks == null)
+			return null;
+
+		List<SiegeArena> list = chunks.get(key(l.getBlockX() >> 4, l.getBlockZ() >> 4));
+		if (list == null)
+			return null;
+
+		for (SiegeArena arena : list)
+			if (arena.contains(l))
+				return arena;
+
+		return null;
+	}
+
+	private static long key(int x, int z) {
+		return (long) x << 32 | (z & 0xffffffffL);
+	}
+
+	private static final class Indexed {
+
+		private final UUID world;
+		private final List<Long> keys;
+
+		private Indexed(UUID world, List<Long> keys) {
+			this.world = world;
+			this.keys = keys;
+		}
+	}
+}
@@ -0,0 +1,119 @@
+package com.siege.core;
+
+import java.util.HashMap;
+import java.util.PriorityQueue;
+import java.util.UUID;
+
+import org.bukkit.ChatColor;
+import org.bukkit.GameMode;
+import org.bukkit.Location;
+import org.bukkit.entity.Player;
+
+import siege.util.BukkitRestricted;
+
+/**
+ * dead players of an arena waiting to respawn. A single task per arena checks
+ * the respawn with the nearest deadline and updates the countdown titles only
+ * when the shown seconds change. The chunk of the spawn is loaded when the
+ * player dies, so the respawn teleport never loads it
+ * 
+ * @author Tommaso
+ *
+ */
+@BukkitRestricted
+final class RespawnManager extends SiegeTask {
+
+	// ticks before a dead player respawns
+	private static final int RESPAWN_TICKS = 5 * 20;
+
+	private final SiegeScheduler.Slice slice;
+
+	// dead players by deadline and by uuid
+	private final PriorityQueue<Pending> queue = new PriorityQueue<>(
+			(a, b) -> Long.compare(a.deadline, b.deadline));
+	private final HashMap<UUID, Pending> pending = new HashMap<>();
+
+	private long tick;
+
+	RespawnManager(SiegeScheduler.Slice slice) {
+		super("respawn");
+		this.slice = slice;
+		slice.runTimer(this, 1);
+	}
+
+	/**
+	 * make a player a spectator until the respawn. A player already waiting is
+	 * ignored
+	 * 
+	 * @param p     the dead player
+	 * @param spawn the spawn of the player team or null to respawn in place
+	 */
+	void kill(Player p, Location spawn) {
+		if (pending.containsKey(p.getUniqueId()))
+			return;
+
+		p.setHealth(20);
+		p.setGameMode(GameMode.SPECTATOR);
+		p.sendTitle(ChatColor.RED + "You are dead!", "", 1, 20, 1);
+
+		Pending r = new Pending(p, spawn, tick + RESPAWN_TICKS);
+		pending.put(p.getUniqueId(), r);
+		queue.add(r);
+
+		// the teleport will find the spawn chunk loaded
+		if (spawn != null && !spawn.getWorld().isChunkLoaded(spawn.getBlockX() >> 4, spawn.getBlockZ() >> 4))
+			slice.defer(() -> spawn.getWorld().loadChunk(spawn.getBlockX() >> 4, spawn.getBlockZ() >> 4));
+	}
+
+	/**
+	 * respawn every dead player now
+	 */
+	void respawnAll() {
+		while (!queue.isEmpty())
+			respawn(queue.poll());
+	}
+
+	@Override
+	public void run() {
+		tick++;
+
+		while (!queue.isEmpty() && queue.peek().deadline <= tick)
+			respawn(queue.poll());
+
+		// titles are sent only when the seconds change
+		for (Pending r : pending.values()) {
+			int seconds = (int) ((r.deadline - tick + 19) / 20);
+			if (seconds != r.shown) {
+				r.shown = seconds;
+				r.player.sendTitle(ChatColor.GREEN + "Respawn in: " + ChatColor.WHITE + seconds + "s", "", 1, 20, 1);
+			}
+		}
+	}
+
+	private void respawn(Pending r) {
+		pending.remove(r.player.getUniqueId());
+
+		if (!r.player.isOnline())
+			return;
+
+		r.player.setGameMode(GameMode.SURVIVAL);
+		if (r.spawn != null)
+			r.player.teleport(r.spawn);
+		SiegeCraft.getInstance().getKit(SiegeCraft.DEFAULT_KIT).apply(r.player);
+	}
+
+	// a dead player with the respawn deadline and the last shown countdown
+	private static final class Pending {
+
+		private final Player player;
+		private final Location spawn;
+		private final long deadline;
+		private int shown = RESPAWN_TICKS / 20;
+
+		private Pending(Player player, Location spawn, long deadline) {
+			this.player = player;
+			this.spawn = spawn;
+			this.deadline = deadline;
+		}
+	}
+}
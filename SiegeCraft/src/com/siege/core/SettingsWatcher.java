@@ -0,0 +1,183 @@
+package com.siege.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.FileTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+
+import org.bukkit.Bukkit;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.plugin.Plugin;
+
+/**
+ * watcher of the settings files of the arenas. Edited files are read and
+ * validated on the watcher thread, then the new settings are passed to the
+ * bukkit thread, which swaps them between two ticks. Files which are not valid
+ * or miss a setting are reported and the settings in use are kept. The plugin
+ * writes the settings files with an atomic move, so a file is never read half
+ * written, and the files written by the plugin are not read back
+ * 
+ * @author Tommaso
+ *
+ */
+final class SettingsWatcher implements Runnable {
+
+	// modification time of the settings files written by the plugin
+	private static final Map<Path, FileTime> WRITTEN = new ConcurrentHashMap<>();
+
+	private final Plugin plugin;
+	private final WatchService service;
+
+	// function receiving the arena id and its new settings on the bukkit thread
+	private final BiConsumer<String, GameSettings> reload;
+
+	// arena id by watched folder
+	private final Map<WatchKey, String> arenas = new ConcurrentHashMap<>();
+
+	/**
+	 * start the watcher thread
+	 * 
+	 * @param plugin the plugin running the reloads
+	 * @param reload function receiving the arena id and its new settings on the
+	 *               bukkit thread
+	 * 
+	 * @throws IOException if the file system cannot be watched
+	 */
+	SettingsWatcher(Plugin plugin, BiConsumer<String, GameSettings> reload) throws IOException {
+		this.plugin = plugin;
+		this.reload = reload;
+		this.service = FileSystems.getDefault().newWatchService();
+
+		Thread thread = new Thread(this, "Siege settings watcher");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * watch the settings file of an arena
+	 * 
+	 * @param id     the arena id
+	 * @param folder the arena folder, created if missing
+	 */
+	void watch(String id, File folder) {
+		folder.mkdirs();
+
+		try {
+			WatchKey key = folder.toPath().register(service, StandardWatchEventKinds.ENTRY_CREATE,
+					StandardWatchEventKinds.ENTRY_MODIFY);
+			arenas.put(key, id);
+		} catch (IOException e) {
+			System.err.println("Cannot watch the settings of arena " + id + ". Error: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * stop watching the settings file of an arena
+	 * 
+	 * @param id the arena id
+	 */
+	void unwatch(String id) {
+		arenas.entrySet().removeIf(e -> {
+			if (!e.getValue().equals(id))
+				return false;
+
+			e.getKey().cancel();
+			return true;
+		});
+	}
+
+	/**
+	 * write a settings file to a temporary file and move it in place, so the
+	 * watcher never reads it half written and doesn't read it back
+	 * 
+	 * @param settings the settings by name
+	 * @param file     the settings file
+	 * 
+	 * @throws IOException if the file cannot be written
+	 */
+	static void write(Map<String, ?> settings, File file) throws IOException {
+		YamlConfiguration c = new YamlConfiguration();
+		settings.forEach(c::set);
+
+		Path path = file.toPath().toAbsolutePath();
+		Path tmp = path.resolveSibling(file.getName() + ".tmp");
+		Files.write(tmp, c.saveToString().getBytes(StandardCharsets.UTF_8));
+
+		// the watcher may see the move before the time is recorded, it only
+		// reads the same settings again
+		synchronized (WRITTEN) {
+			Files.move(tmp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			WRITTEN.put(path, Files.getLastModifiedTime(path));
+		}
+	}
+
+	/**
+	 * stop the watcher thread
+	 */
+	void close() {
+		try {
+			service.close();
+		} catch (IOException e) {
+			;
+		}
+	}
+
+	@Override
+	public void run() {
+		try {
+			while (true) {
+				WatchKey key = service.take();
+				String id = arenas.get(key);
+
+				boolean changed = false;
+				for (WatchEvent<?> e : key.pollEvents())
+					if (e.context() instanceof Path && e.context().toString().equals(SiegeArena.SETTINGS))
+						changed = true;
+
+				if (id != null && changed)
+					read(id, ((Path) key.watchable()).resolve(SiegeArena.SETTINGS).toFile());
+
+				key.reset();
+			}
+		} catch (ClosedWatchServiceException | InterruptedException e) {
+			;
+		}
+	}
+
+	// read and validate a settings file, then swap it on the bukkit thread
+	private void read(String id, File f) {
+		GameSettings settings;
+		try {
+			if (written(f.toPath().toAbsolutePath()))
+				return;
+
+			settings = GameSettings.reload(f);
+		} catch (Exception e) {
+			System.err.println("Settings of arena " + id + " not reloaded. Error: " + e.getMessage());
+			return;
+		}
+
+		if (plugin.isEnabled())
+			Bukkit.getScheduler().runTask(plugin, () -> reload.accept(id, settings));
+	}
+
+	// check if the file is still the one last written by the plugin
+	private static boolean written(Path path) throws IOException {
+		synchronized (WRITTEN) {
+			FileTime time = WRITTEN.get(path);
+			return time != null && time.equals(Files.getLastModifiedTime(path));
+		}
+	}
+}
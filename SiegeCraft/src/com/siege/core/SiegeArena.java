@@ -0,0 +1,1226 @@
+package com.siege.core;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.bukkit.Bukkit;
+import org.bukkit.ChatColor;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.WorldCreator;
+import org.bukkit.block.Block;
+import org.bukkit.entity.Arrow;
+import org.bukkit.entity.EntityType;
+import org.bukkit.entity.Player;
+import org.bukkit.entity.TNTPrimed;
+import org.bukkit.entity.Wither;
+import org.bukkit.entity.WitherSkull;
+import org.bukkit.event.block.BlockBreakEvent;
+import org.bukkit.event.block.BlockExplodeEvent;
+import org.bukkit.event.block.BlockPlaceEvent;
+import org.bukkit.event.entity.EntityDamageEvent;
+import org.bukkit.event.entity.EntityExplodeEvent;
+import org.bukkit.event.entity.EntityPickupItemEvent;
+import org.bukkit.event.entity.EntityTargetEvent;
+import org.bukkit.event.entity.ProjectileHitEvent;
+import org.bukkit.util.BoundingBox;
+import org.bukkit.util.io.BukkitObjectInputStream;
+import org.bukkit.util.io.BukkitObjectOutputStream;
+
+import com.siege.data.Robot;
+import com.siege.data.SiegeAnnouncer;
+import com.siege.data.SiegeBoard;
+import com.siege.data.SiegeRoster;
+import com.siege.data.Tower;
+import com.siege.data.constants.SiegeColor;
+
+import javafx.collections.ObservableList;
+import siege.exeptions.SiegeException;
+import siege.listeners.SiegeBaseListener;
+import siege.listeners.SiegeGameListener;
+import siege.util.BukkitRestricted;
+
+/**
+ * a single siege arena. Every arena owns its own game, scoreboard, teams,
+ * towers and placed blocks so that many matches can run on the same server.
+ * Arenas are created and looked up using the methods of {@link SiegeCraft}
+ * 
+ * @author Tommaso
+ *
+ */
+@BukkitRestricted
+public final class SiegeArena {
+
+	// blocks added around towers, spawns and powerup area to build the region
+	private static final int REGION_MARGIN = 32;
+
+	// settings file in the arena folder, watched for changes
+	static final String SETTINGS = "settings.yml";
+
+	private final String id;
+	private final File folder;
+
+	// team members and the derived lists of online red and blue players
+	private final SiegeRoster roster = new SiegeRoster();
+	private final ObservableList<Player> redTeam = roster.getTeam(SiegeColor.RED);
+	private final ObservableList<Player> blueTeam = roster.getTeam(SiegeColor.BLUE);
+
+	// support game class
+	private final SiegeBoard scoreboard = new SiegeBoard(roster);
+	private final SiegeAnnouncer announcer = new SiegeAnnouncer(roster, this::getSpectators);
+	private final SiegeGame game;
+
+	// powerups on the ground of this arena and dead players
+	private final PowerupRegistry powerups;
+	private final RespawnManager respawns;
+
+	// countdown and chunks of the last started game
+	private GameStart start;
+	private ArenaChunks chunks;
+
+	// arena share of the plugin scheduler
+	private final SiegeScheduler.Slice slice;
+
+	// player placed blocks and explosions destroying them
+	private final PlacedBlocks placedBlocks = new PlacedBlocks();
+	private final ExplosionProcessor explosions;
+
+	// incremented on every block change, invalidates the towers line of sight
+	private long blockEpoch;
+
+	// world and area covered by the arena objects
+	private World world;
+	private String worldName;
+	private BoundingBox region;
+
+	// false until the world of a lazily loaded arena is loaded
+	private boolean loaded = true;
+	private boolean warming;
+
+	// last time the arena has been used, to unload its world when idle
+	private long lastUse = System.currentTimeMillis();
+
+	// map shared by the instances of the same arena and reset state
+	private String template;
+	private boolean resetting;
+
+	SiegeArena(String id, File folder, SiegeScheduler.Slice slice) {
+		this.id = id;
+		this.folder = folder;
+		this.slice = slice;
+		this.powerups = new PowerupRegistry(id);
+		this.respawns = new RespawnManager(slice);
+		this.explosions = new ExplosionProcessor(placedBlocks, this::blockChanged);
+		this.game = new SiegeGame(scoreboard, slice, b -> !isProtected(b), powerups);
+
+		registerListener(SiegeBaseListener.class);
+
+		// release the game resources however the game ends
+		game.onGameEnd(this::gameEnded);
+
+		scoreboard.init();
+	}
+
+	/**
+	 * get the id of this arena
+	 * 
+	 * @return the arena id
+	 */
+	public String getId() {
+		return id;
+	}
+
+	/**
+	 * register new Listener by class name
+	 * 
+	 * @param s the class of the listener to be registered
+	 * @throws SiegeException        if listener cannot be instantiated
+	 * @throws IllegalStateException if the caller is not the bukkit thread
+	 */
+	public void registerListener(Class<? extends SiegeGameListener> s) {
+		SiegeCraft.checkThread();
+
+		try {
+			getListeners().add(
+					s.getConstructor(String.class, SiegeBoard.class, ObservableList.class, ObservableList.class)
+							.newInstance(id, scoreboard, redTeam, blueTeam));
+		} catch (InstantiationException | IllegalAccessException | IllegalArgumentException | InvocationTargetException
+				| NoSuchMethodException | SecurityException e) {
+			throw new SiegeException("Listener cannot be instantiated. Reason: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * get all siege game listeners of this arena
+	 * 
+	 * @throws IllegalStateException if the caller is not the bukkit thread
+	 * 
+	 * @return the list of all game listeners editable (remove and add are allowed)
+	 */
+	public ObservableList<SiegeGameListener> getListeners() {
+		SiegeCraft.checkThread();
+
+		return game.getListeners();
+	}
+
+	/**
+	 * set the spawn point for a team
+	 * 
+	 * @param l         a block where they must respawn
+	 * @param teamColor a team color owner of this spawn
+	 * 
+	 * @throws SiegeException        if an error occur
+	 * @throws IllegalStateException if the caller is not the bukkit thread
+	 */
+
+	public void setSpawn(Location l, SiegeColor teamColor) {
+		SiegeCraft.checkThread();
+		ensureLoaded();
+
+		if (l == null || teamColor == null)
+			throw new SiegeException("Null and negative values are not allowed");
+
+		checkWorld(l);
+
+		if (teamColor == SiegeColor.BLUE) {
+			// set blue spawn
+			game.setBlueSpawn(l);
+			for (int x = -1; x <= 1; x++)
+				for (int z = -1; z <= 1; z++) {
+					game.getBlueSpawn().add(x, -1, z);
+					game.getBlueSpawn().getBlock().setType(Material.BLUE_WOOL);
+					game.getBlueSpawn().add(-x, +1, -z);
+				}
+		} else {
+			// set red spawn
+			game.setRedSpawn(l);
+			for (int x = -1; x <= 1; x++)
+				for (int z = -1; z <= 1; z++) {
+					game.getRedSpawn().add(x, -1, z);
+					game.getRedSpawn().getBlock().setType(Material.RED_WOOL);
+					game.getRedSpawn().add(-x, +1, -z);
+				}
+		}
+
+		updateRegion();
+	}
+
+	/**
+	 * set the powerup spawn location
+	 * 
+	 * @param l       the middle point of the spawn area
+	 * @param seconds delay between powerup spawn
+	 * @param radius  the radius of the spawn area
+	 * 
+	 * @throws SiegeException        if an error occur
+	 * @throws IllegalStateException if the caller is not the bukkit thread
+	 */
+
+	public void setPowerupSpawn(Location l, int seconds, int radius) {
+		SiegeCraft.checkThread();
+		ensureLoaded();
+
+		if (game.isPlaying())
+			throw new SiegeException("Cannot change powerup spawn during game");
+
+		if (l == null || seconds <= 0 || radius <= 0)
+			throw new SiegeException("Null and negative values are not allowed");
+
+		checkWorld(l);
+		createCircle(l, radius, Material.GREEN_CONCRETE);
+
+		l.add(0, -1, 0);
+		l.getBlock().setType(Material.EMERALD_BLOCK);
+		l.add(0, 1, 0);
+		// set spawn location and details
+		game.setPowerupSpawn(l);
+		game.setSettings(game.getSettings().withPowerupSpawn(seconds, radius));
+
+		updateRegion();
+	}
+
+	/**
+	 * spawn a new robot
+	 * 
+	 * @param l         spawn location
+	 * @param ownerTeam owner of the robot
+	 * @param damage    base damage
+	 * @param health    robot health
+	 * @return the spawned robot
+	 * 
+	 * @throws SiegeException        if an error occur
+	 * @throws IllegalStateException if the caller is not the bukkit thread
+	 */
+
+	public Robot spawnRobot(Location l, SiegeColor ownerTeam, int damage, int health) {
+		SiegeCraft.checkThread();
+
+		if (!game.isPlaying())
+			throw new SiegeException("Robots can be spawned only during game");
+
+		if (l == null || ownerTeam == null || damage <= 0 || health <= 0)
+			throw new SiegeException("Null and negative values are not allowed");
+		Tower ally = ownerTeam == SiegeColor.BLUE ? game.getBlueTower() : game.getRedTower();
+		Tower enemy = ownerTeam == SiegeColor.BLUE ? game.getRedTower() : game.getBlueTower();
+
+		// create robot and call every listener every time robot gets damage
+		Robot r = ally.createRobot(enemy, damage, health);
+		r.onRobotDamage(() -> game.getListeners().forEach(e -> e.onRobotDamage(ownerTeam, r)));
+		// call every listener on robot spawn
+		game.getListeners().forEach(e -> e.onRobotSpawn(ownerTeam, r, 0));
+
+		return r;
+	}
+
+	/**
+	 * spawn a tower at the given location for a team based on the color with the
+	 * specified damage per tick, reload speed, tower radius and health
+	 * 
+	 * Note: negative values will be considerated as positive using v)
+	 * 
+	 * @param l                    the tower position
+	 * @param color                team color RED/BLUE only supported
+	 * @param damage               damage per tick
+	 * @param towerRadius          tower radius
+	 * @param health               health of the tower.
+	 * @param robotLevelMultiplier base robot stats multiplier per level
+	 * @param robotBaseDamage      robot base damage
+	 * @param robotHealth          robot health
+	 * @return the created tower
+	 * 
+	 * @throws SiegeException        if an error occur
+	 * @throws IllegalStateException if the caller is not the bukkit thread
+	 * 
+	 */
+	public Tower spawnTower(Location l, SiegeColor color, int damage, int towerRadius, int health,
+			double robotLevelMultiplier, int robotBaseDamage, int robotHealth) {
+		SiegeCraft.checkThread();
+		ensureLoaded();
+
+		if (game.isPlaying())
+			throw new SiegeException("Cannot change tower during game");
+
+		if (l == null || color == null || damage <= 0 || robotLevelMultiplier <= 0 || towerRadius <= 0 || health <= 0
+				|| robotHealth <= 0)
+			throw new SiegeException("Null and negative values are not allowed");
+
+		checkWorld(l);
+		createCircle(l, towerRadius, color == SiegeColor.BLUE ? Material.BLUE_CONCRETE : Material.RED_CONCRETE);
+
+		if (color == SiegeColor.BLUE) {
+			// create tower and call every listener every time tower gets damage
+			setBlueTower(new Tower(blueTeam, redTeam, l, damage, towerRadius, health, robotLevelMultiplier,
+					robotBaseDamage, robotHealth));
+			return game.getBlueTower();
+		} else {
+			// create tower and call every listener every time tower gets damage
+			setRedTower(new Tower(redTeam, blueTeam, l, damage, towerRadius, health, robotLevelMultiplier,
+					robotBaseDamage, robotHealth));
+			return game.getRedTower();
+		}
+	}
+
+	/**
+	 * start a new game of siege if are set towers, player spawn areas, coins spawn
+	 * area with the given max play time and robot spawn delay
+	 * 
+	 * @param maxPlayTime max time playable in seconds
+	 * @param robotDelay  robot spawn check delay in seconds
+	 * 
+	 * @throws SiegeException        if an error occur
+	 * @throws IllegalStateException if the caller is not the bukkit thread
+	 */
+	public void startGame(int maxPlayTime, int robotDelay) {
+		SiegeCraft.checkThread();
+		ensureLoaded();
+
+		if (resetting)
+			throw new SiegeException("Arena " + id + " is being reset");
+
+		game.checkState();
+
+		game.setSettings(game.getSettings().withGameTime(maxPlayTime, robotDelay));
+
+		startGame();
+
+	}
+
+	/**
+	 * set the team for a list of players. Players already playing in another arena
+	 * are rejected by {@link SiegeCraft#setPlayersTeam(String, SiegeColor, List)}
+	 * 
+	 * @param team    a team color
+	 * @param players a player's names list
+	 * 
+	 * @throws SiegeException        if an error occur
+	 * @throws IllegalStateException if the caller is not the bukkit thread
+	 */
+
+	public void setPlayersTeam(SiegeColor team, List<String> players) {
+		SiegeCraft.checkThread();
+
+		if (game.isPlaying())
+			throw new SiegeException("Cannot change players teams during game");
+
+		if (team == null || players == null)
+			throw new SiegeException("Null values are not allowed");
+
+		// every name is resolved once
+		List<Player> resolved = new ArrayList<>(players.size());
+		for (String p : players)
+			resolved.add(Bukkit.getPlayer(p));
+
+		addPlayers(team, resolved);
+	}
+
+	/**
+	 * remove players from every team
+	 * 
+	 * @param players list of player to remove from their team
+	 * @return the team from which the player was removed
+	 * 
+	 * @throws SiegeException        if an error occur
+	 * @throws IllegalStateException if the caller is not the bukkit thread
+	 */
+
+	public SiegeColor removePlayersTeam(List<String> players) {
+		SiegeCraft.checkThread();
+
+		if (game.isPlaying())
+			throw new SiegeException("Cannot change players teams during game");
+
+		SiegeColor removed = null;
+		for (String p : players) {
+			SiegeColor team = roster.remove(Bukkit.getPlayer(p));
+			if (removed == null)
+				removed = team;
+		}
+
+		return removed;
+
+	}
+
+	/**
+	 * ask to stop the game. A started game expires its timer, notifying the
+	 * listeners of the time expired, while a game still counting down is aborted
+	 * without notifying them
+	 * 
+	 * @throws IllegalStateException if the caller is not the bukkit thread
+	 */
+	public void stop() {
+		SiegeCraft.checkThread();
+
+		if (!game.isPlaying())
+			return;
+
+		// a game still counting down has no clock to expire
+		if (game.isStarting()) {
+			start.cancel();
+			game.abort();
+		} else
+			game.expireTimer();
+	}
+
+	/**
+	 * get current winning team color
+	 * 
+	 * @return the team color or null if draw
+	 * 
+	 * @throws IllegalStateException if the caller is not the bukkit thread
+	 */
+	public SiegeColor getWinning() {
+		SiegeCraft.checkThread();
+		return game.getWinning();
+	}
+
+	/**
+	 * check if a game is running in this arena
+	 * 
+	 * @return true if the game is running false otherwise
+	 * 
+	 * @throws IllegalStateException if the caller is not the bukkit thread
+	 */
+	public boolean isPlaying() {
+		SiegeCraft.checkThread();
+		return game.isPlaying();
+	}
+
+	/**
+	 * check if the arena can start a new game: no game is running, the blocks of
+	 * the last game have been restored and towers, spawns and powerup area are set
+	 * 
+	 * @return true if the arena is ready false otherwise
+	 * 
+	 * @throws IllegalStateException if the caller is not the bukkit thread
+	 */
+	public boolean isReady() {
+		SiegeCraft.checkThread();
+
+		if (game.isPlaying() || resetting)
+			return false;
+
+		try {
+			game.checkState();
+			return true;
+		} catch (SiegeException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * check if the arena is restoring the blocks placed in the last game
+	 * 
+	 * @return true if the arena is being reset false otherwise
+	 * 
+	 * @throws IllegalStateException if the caller is not the bukkit thread
+	 */
+	public boolean isResetting() {
+		SiegeCraft.checkThread();
+		return resetting;
+	}
+
+	/**
+	 * get the map template of this arena. Arenas with the same template are
+	 * instances of the same map: when a game ends on one of them the next game
+	 * can start on another one while the first is being reset
+	 * 
+	 * @return the template name or null if the arena is not an instance of a map
+	 */
+	public String getTemplate() {
+		return template;
+	}
+
+	/**
+	 * prepare the arena for a new game. If the world of the arena is unloaded its
+	 * region files are read in background and the world is loaded on the next
+	 * ticks, then the chunks around towers, spawns and powerup area are loaded
+	 * inside the arena tick budget
+	 * 
+	 * @throws IllegalStateException if the caller is not the bukkit thread
+	 */
+	public void warmup() {
+		SiegeCraft.checkThread();
+
+		touch();
+		if (warming)
+			return;
+
+		if (loaded) {
+			preloadChunks();
+			return;
+		}
+
+		warming = true;
+		File worldFolder = new File(Bukkit.getWorldContainer(), worldName);
+
+		Bukkit.getScheduler().runTaskAsynchronously(SiegeCraft.getInstance(), () -> {
+			// the world is then loaded from the disk cache
+			ArenaCloner.readWorld(worldFolder);
+
+			Bukkit.getScheduler().runTask(SiegeCraft.getInstance(), () -> {
+				warming = false;
+				if (!loaded) {
+					ensureLoaded();
+					preloadChunks();
+				}
+			});
+		});
+	}
+
+	/**
+	 * check if the player is in the red or in the blue team of this arena
+	 * 
+	 * @param p the player to check
+	 * @return true if the player is in a team false otherwise
+	 * 
+	 * @throws IllegalStateException if the caller is not the bukkit thread
+	 */
+	public boolean isInTeam(Player p) {
+		SiegeCraft.checkThread();
+		return teamOf(p) != null;
+	}
+
+	/**
+	 * check if a location is inside the region of this arena. The region is built
+	 * around towers, spawns and powerup area and covers the whole world height
+	 * 
+	 * @param l the location to check
+	 * @return true if the location is inside the arena false otherwise
+	 */
+	public boolean contains(Location l) {
+		return region != null && l.getWorld() == world && region.contains(l.getX(), l.getY(), l.getZ());
+	}
+
+	/**
+	 * get the world where the arena has been built
+	 * 
+	 * @return the world or null if no object has been set yet
+	 */
+	public World getWorld() {
+		return world;
+	}
+
+	/**
+	 * get the announcer sending messages and titles to the players of this arena
+	 * 
+	 * @return the arena announcer
+	 * 
+	 * @throws IllegalStateException if the caller is not the bukkit thread
+	 */
+	public SiegeAnnouncer getAnnouncer() {
+		SiegeCraft.checkThread();
+		return announcer;
+	}
+
+	/**
+	 * run cosmetic work of this arena, like a scoreboard update, in the time left
+	 * in the tick. Work queued with the same key and not run yet is replaced, so
+	 * only the latest update runs
+	 * 
+	 * @param key the key of the updated thing
+	 * @param r   the work to run
+	 * 
+	 * @throws IllegalStateException if the caller is not the bukkit thread
+	 */
+	public void defer(Object key, Runnable r) {
+		SiegeCraft.checkThread();
+		slice.defer(key, r);
+	}
+
+	/**
+	 * get the unmodifiable list of red players
+	 * 
+	 * @return an unmodifiable observable list of players
+	 * 
+	 * @throws IllegalStateException if the caller is not the bukkit thread
+	 */
+	public ObservableList<Player> getRedTeam() {
+		SiegeCraft.checkThread();
+		return redTeam;
+	}
+
+	/**
+	 * get the unmodifiable list of blue players
+	 * 
+	 * @return an unmodifiable observable list of players
+	 * 
+	 * @throws IllegalStateException if the caller is not the bukkit thread
+	 */
+	public ObservableList<Player> getBlueTeam() {
+		SiegeCraft.checkThread();
+		return blueTeam;
+	}
+
+	/**
+	 * load towers, spawns and settings saved in the arena folder. If the world of
+	 * the arena is not loaded the objects are loaded on first use
+	 */
+	void load() {
+		if (!folder.exists())
+			return;
+
+		loadSettings();
+
+		try {
+			if (new File(folder, "Arena.sc").exists()) {
+				Map<String, Object> arena = read("Arena.sc");
+				template = (String) arena.get("template");
+				worldName = (String) arena.get("world");
+			}
+		} catch (Exception e) {
+			System.err.println("Siege files of arena " + id + " are corrupted. Enabling default settings...");
+		}
+
+		// worlds of arena instances are loaded lazily
+		if (worldName != null && Bukkit.getWorld(worldName) == null)
+			loaded = false;
+		else
+			loadObjects();
+	}
+
+	/**
+	 * load the world and the objects of a lazily loaded arena
+	 */
+	void ensureLoaded() {
+		if (loaded)
+			return;
+
+		if (Bukkit.getWorld(worldName) == null)
+			Bukkit.createWorld(new WorldCreator(worldName));
+
+		loadObjects();
+	}
+
+	boolean isLoaded() {
+		return loaded;
+	}
+
+	/**
+	 * check if the arena has not been used for a while: no game, no players in
+	 * teams and nobody in its world
+	 * 
+	 * @param timeout milliseconds without use
+	 * @return true if the arena world can be unloaded
+	 */
+	boolean isIdle(long timeout) {
+		return loaded && !warming && world != null && !game.isPlaying() && !resetting && !hasPlayers()
+				&& world.getPlayers().isEmpty() && System.currentTimeMillis() - lastUse > timeout;
+	}
+
+	/**
+	 * save the arena and unload its world. The arena will be loaded again on first
+	 * use or on {@link #warmup()}
+	 */
+	void unload() {
+		try {
+			save();
+		} catch (IOException e) {
+			System.err.println("Could not save siegecraft properties of arena " + id + ". Error: " + e.getMessage());
+			return;
+		}
+
+		// towers are spawned again on load
+		if (game.getBlueTower() != null)
+			game.getBlueTower().getTower().remove();
+		if (game.getRedTower() != null)
+			game.getRedTower().getTower().remove();
+
+		game.clear();
+		slice.clear();
+
+		World tmp = world;
+		world = null;
+		region = null;
+		loaded = false;
+		SiegeCraft.getInstance().getRegions().remove(this);
+
+		Bukkit.unloadWorld(tmp, true);
+	}
+
+	// mark the arena as used
+	void touch() {
+		lastUse = System.currentTimeMillis();
+	}
+
+	/**
+	 * save the location of tower, powerup area and spawnpoints in the arena folder
+	 * 
+	 * @throws IOException if a file cannot be written
+	 */
+	void save() throws IOException {
+		// lazily loaded arenas didn't change since last save
+		if (!loaded)
+			return;
+
+		folder.mkdirs();
+
+		for (Map.Entry<String, Map<String, ?>> e : serialize().entrySet())
+			write(e.getValue(), new File(folder, e.getKey()));
+	}
+
+	/**
+	 * serialize the arena objects
+	 * 
+	 * @return the content of every arena file by file name
+	 */
+	Map<String, Map<String, ?>> serialize() {
+		LinkedHashMap<String, Map<String, ?>> files = new LinkedHashMap<>();
+
+		if (game.getRedTower() != null)
+			files.put("Red tower.sc", game.getRedTower().serialize());
+		if (game.getBlueTower() != null)
+			files.put("Blue tower.sc", game.getBlueTower().serialize());
+
+		if (game.getRedSpawn() != null)
+			files.put("Red spawn.sc", game.getRedSpawn().serialize());
+		if (game.getBlueSpawn() != null)
+			files.put("Blue spawn.sc", game.getBlueSpawn().serialize());
+
+		if (game.getPowerupSpawn() != null)
+			files.put("Powerup spawn.sc", game.getPowerupSpawn().serialize());
+		files.put(SETTINGS, game.getSettings().serialize());
+
+		HashMap<String, Object> arena = new HashMap<>();
+		arena.put("template", template);
+		arena.put("world", worldName);
+		files.put("Arena.sc", arena);
+
+		return files;
+	}
+
+	/**
+	 * stop the game, remove the towers of this arena and unregister its listeners
+	 */
+	void dispose() {
+		stop();
+		respawns.cancel();
+
+		if (game.getBlueTower() != null)
+			game.getBlueTower().getTower().remove();
+		if (game.getRedTower() != null)
+			game.getRedTower().getTower().remove();
+
+		scoreboard.dispose();
+		roster.dispose();
+	}
+
+	File getFolder() {
+		return folder;
+	}
+
+	SiegeScheduler.Slice getSlice() {
+		return slice;
+	}
+
+	void setTemplate(String template) {
+		this.template = template;
+	}
+
+	/**
+	 * start a new game with the arena settings
+	 * 
+	 * @throws SiegeException if an error occur
+	 */
+	void startGame() {
+		ensureLoaded();
+
+		if (resetting)
+			throw new SiegeException("Arena " + id + " is being reset");
+
+		game.checkState();
+		touch();
+
+		game.prepare();
+		chunks = new ArenaChunks(world, game);
+		start = new GameStart(game, chunks, roster, scoreboard, announcer, slice);
+	}
+
+	/**
+	 * add already resolved players to a team. No player is added if one of them is
+	 * missing or already in a team
+	 * 
+	 * @param team    a team color
+	 * @param players the players
+	 * 
+	 * @throws SiegeException if an error occur
+	 */
+	void addPlayers(SiegeColor team, Collection<Player> players) {
+		ensureLoaded();
+
+		if (game.isPlaying())
+			throw new SiegeException("Cannot change players teams during game");
+
+		roster.add(team, players);
+	}
+
+	/**
+	 * remove players from their team
+	 * 
+	 * @param players the players
+	 */
+	void removePlayers(Collection<Player> players) {
+		roster.removeAll(players);
+	}
+
+	/**
+	 * get the settings of the game
+	 * 
+	 * @return the settings in use
+	 */
+	GameSettings getSettings() {
+		return game.getSettings();
+	}
+
+	/**
+	 * swap the settings of the game with the ones read from the settings file
+	 * 
+	 * @param settings the new settings
+	 */
+	void reloadSettings(GameSettings settings) {
+		if (settings.equals(game.getSettings()))
+			return;
+
+		game.setSettings(settings);
+
+		// the powerup area can be wider
+		if (loaded && !game.isPlaying())
+			updateRegion();
+	}
+
+	/**
+	 * copy the state of the game for the game snapshot
+	 * 
+	 * @return the arena state
+	 */
+	GameSnapshot.Arena snapshot() {
+		return new GameSnapshot.Arena(id, game.isPlaying(), game.getTime(),
+				new GameSnapshot.Team(game.getBlueTower(), blueTeam),
+				new GameSnapshot.Team(game.getRedTower(), redTeam));
+	}
+
+	boolean hasPlayers() {
+		return !roster.isEmpty();
+	}
+
+	// team of the player or null if the player doesn't play in this arena
+	SiegeColor teamOf(Player p) {
+		return roster.teamOf(p);
+	}
+
+	// called only for the powerups of this arena
+	void onItemPickupEvent(EntityPickupItemEvent e) {
+		if (game.getBlueTower() == null || game.getRedTower() == null)
+			return;
+
+		// only team players can pick up powerups
+		SiegeColor team = e.getEntity() instanceof Player ? roster.teamOf((Player) e.getEntity()) : null;
+		if (team == null) {
+			e.setCancelled(true);
+			return;
+		}
+
+		if (team == SiegeColor.BLUE)
+			game.getBlueTower().addPowerups(e.getItem().getItemStack().getAmount());
+		if (team == SiegeColor.RED)
+			game.getRedTower().addPowerups(e.getItem().getItemStack().getAmount());
+
+		// send a info message with the amount of powerups picked up
+		Player p = (Player) e.getEntity();
+		p.sendMessage(ChatColor.GREEN + "+" + e.getItem().getItemStack().getAmount()
+				+ (e.getItem().getItemStack().getAmount() > 1 ? " Powerups" : " Powerup"));
+
+		// remove the item from the inventory
+		powerups.remove(e.getItem());
+		e.getItem().remove();
+		e.setCancelled(true);
+	}
+
+	void onEntityTargetChangeEvent(EntityTargetEvent e) {
+		// cancel target change (only code level allowed)
+		if (e.getEntity() instanceof Wither)
+			e.setCancelled(true);
+	}
+
+	void onRobotDamageEvent(EntityDamageEvent e) {
+		if (game.getBlueTower() == null || game.getRedTower() == null)
+			return;
+
+		// when robot takes damage cancel it and damage it "at game level"
+		if (e.getEntity() instanceof Wither) {
+			// find the robot associated at the damaged entity
+			Robot r = game.getBlueTower().getAllyRobots().get(e.getEntity().getUniqueId());
+			if (r == null)
+				r = game.getRedTower().getAllyRobots().get(e.getEntity().getUniqueId());
+
+			if (r == null)
+				return;
+
+			r.damage((int) e.getDamage());
+			e.setDamage(0);
+		}
+	}
+
+	void onWitherSkullHitEvent(ProjectileHitEvent e) {
+		if (game.getBlueTower() == null || game.getRedTower() == null)
+			return;
+
+		if (e.getEntity() instanceof WitherSkull && e.getEntity().getShooter() instanceof Wither) {
+			// damage the tower if in range
+			Wither w = (Wither) ((WitherSkull) e.getEntity()).getShooter();
+			Robot r = game.getBlueTower().getAllyRobots().get(w.getUniqueId());
+			if (r == null)
+				r = game.getRedTower().getAllyRobots().get(w.getUniqueId());
+
+			if (r == null)
+				return;
+
+			// check if wither skull exploded near tower
+			damageTowers(e.getEntity().getLocation(), 3, r.getDamage());
+
+			explosions.effect(e.getEntity().getLocation());
+			e.setCancelled(true);
+
+		}
+	}
+
+	void onPlayerDamageEvent(EntityDamageEvent e) {
+		// if a player dies wait 5s and the respawn it
+		if (e.getEntity() instanceof Player) {
+			Player p = (Player) e.getEntity();
+
+			// players not in the game die as usual
+			SiegeColor team = roster.teamOf(p);
+			if (team == null)
+				return;
+
+			// if player could die cancel it
+			if (e.getFinalDamage() >= p.getHealth()) {
+				e.setCancelled(true);
+
+				// change gamemode to spectator and respawn at his own spawn after 5s
+				respawns.kill(p, team == SiegeColor.RED ? game.getRedSpawn() : game.getBlueSpawn());
+			}
+		}
+	}
+
+	void onArrowHitEvent(ProjectileHitEvent e) {
+		// remove arrows and if it hit a non protected block delete it
+		if (e.getEntity() instanceof Arrow) {
+			if (e.getHitBlock() != null && !isProtected(e.getHitBlock())) {
+				e.getHitBlock().setType(Material.AIR);
+				placedBlocks.remove(e.getHitBlock());
+				blockChanged(e.getHitBlock());
+			}
+			e.getEntity().remove();
+		}
+	}
+
+	void onBlockExplodeEvent(BlockExplodeEvent e) {
+		if (isProtected(e.getBlock()))
+			e.setCancelled(true);
+	}
+
+	void onTNTExplodeEvent(EntityExplodeEvent e) {
+		if (game.getBlueTower() == null || game.getRedTower() == null)
+			return;
+
+		// listen for tnt explode
+		if (e.getEntity() instanceof TNTPrimed) {
+			// damage the tower if in range
+			damageTowers(e.getEntity().getLocation(), 10, 50);
+
+			// destroy the blocks placed by players if in range
+			explosions.explode(e.getEntity().getLocation(), e.blockList());
+			e.setCancelled(true);
+		}
+
+	}
+
+	void onBlockPlaceEvent(BlockPlaceEvent event) {
+		// if it's tnt blow it else save it as block placed by player
+		if (event.getBlock().getType() == Material.TNT) {
+			event.getBlock().setType(Material.AIR);
+			TNTPrimed tnt = (TNTPrimed) event.getBlock().getWorld().spawnEntity(event.getBlock().getLocation(),
+					EntityType.PRIMED_TNT);
+			tnt.setFuseTicks(20);
+		} else {
+			placedBlocks.add(event.getBlock());
+			blockChanged(event.getBlock());
+		}
+	}
+
+	void onBlockBreakEvent(BlockBreakEvent event) {
+		// destroy the block only if the block was placed by a player
+		if (isProtected(event.getBlock()))
+			event.setCancelled(true);
+		else {
+			placedBlocks.remove(event.getBlock());
+			blockChanged(event.getBlock());
+		}
+
+	}
+
+	// flush the respawns, free the teams and the chunks and restore the blocks
+	// when the game ends for any reason
+	private void gameEnded() {
+		respawns.respawnAll();
+		roster.clear();
+		chunks.release();
+
+		reset();
+		touch();
+	}
+
+	// restore the placed blocks in background inside the arena tick budget
+	private void reset() {
+		resetting = true;
+
+		placedBlocks.clear(b -> slice.defer(() -> {
+			b.setType(Material.AIR);
+			blockEpoch++;
+		}));
+
+		// queued work runs in order so this is the last restore
+		slice.defer(() -> resetting = false);
+	}
+
+	// settings file, or the settings saved by the old versions
+	private void loadSettings() {
+		try {
+			if (new File(folder, SETTINGS).exists())
+				game.setSettings(GameSettings.read(new File(folder, SETTINGS)));
+			else if (new File(folder, "Game settings.sc").exists())
+				game.setSettings(GameSettings.load(read("Game settings.sc")));
+		} catch (Exception e) {
+			System.err.println("Settings of arena " + id + " are not valid. Enabling default settings... Error: "
+					+ e.getMessage());
+		}
+	}
+
+	private void loadObjects() {
+		loaded = true;
+		touch();
+
+		try {
+			setRedTower(Tower.fromFile(redTeam, blueTeam, new File(folder, "Red tower.sc")));
+			setBlueTower(Tower.fromFile(blueTeam, redTeam, new File(folder, "Blue tower.sc")));
+
+			game.setRedSpawn(Location.deserialize(read("Red spawn.sc")));
+			game.setBlueSpawn(Location.deserialize(read("Blue spawn.sc")));
+
+			game.setPowerupSpawn(Location.deserialize(read("Powerup spawn.sc")));
+		} catch (Exception e) {
+			System.err.println("Siege files of arena " + id + " are corrupted. Enabling default settings...");
+		}
+
+		world = game.getBlueTower() != null ? game.getBlueTower().getTower().getWorld() : null;
+		worldName = world != null ? world.getName() : worldName;
+		updateRegion();
+	}
+
+	private void setBlueTower(Tower t) {
+		game.setBlueTower(t);
+		t.setBlockEpoch(() -> blockEpoch);
+		updateRegion();
+	}
+
+	private void setRedTower(Tower t) {
+		game.setRedTower(t);
+		t.setBlockEpoch(() -> blockEpoch);
+		updateRegion();
+	}
+
+	// players inside the arena which don't play
+	private Collection<Player> getSpectators() {
+		List<Player> spectators = new ArrayList<>();
+		if (world == null)
+			return spectators;
+
+		for (Player p : world.getPlayers())
+			if (!roster.contains(p) && contains(p.getLocation()))
+				spectators.add(p);
+
+		return spectators;
+	}
+
+	// load the chunks of towers, spawns, powerup area and robot lanes in the next
+	// ticks
+	private void preloadChunks() {
+		if (world == null)
+			return;
+
+		World w = world;
+		for (long key : new ArenaChunks(w, game).keys())
+			slice.defer(() -> {
+				if (world == w)
+					w.loadChunk((int) (key >> 32), (int) key);
+			});
+	}
+
+	// all the objects of an arena must be in the same world
+	private void checkWorld(Location l) {
+		if (world != null && l.getWorld() != world)
+			throw new SiegeException("Arena " + id + " is in world " + world.getName());
+
+		world = l.getWorld();
+		worldName = world.getName();
+	}
+
+	// rebuild the arena region around every object set
+	private void updateRegion() {
+		BoundingBox box = null;
+
+		if (game.getBlueTower() != null)
+			box = include(box, game.getBlueTower().getTower().getLocation(), game.getBlueTower().getRadius());
+		if (game.getRedTower() != null)
+			box = include(box, game.getRedTower().getTower().getLocation(), game.getRedTower().getRadius());
+
+		box = include(box, game.getBlueSpawn(), 1);
+		box = include(box, game.getRedSpawn(), 1);
+		box = include(box, game.getPowerupSpawn(), game.getSettings().getPowerupSpawnRadius());
+
+		region = box;
+		SiegeCraft.getInstance().getRegions().put(this, world, region);
+	}
+
+	private BoundingBox include(BoundingBox box, Location l, int radius) {
+		if (l == null)
+			return box;
+
+		// regions cover the whole world height
+		double size = radius + REGION_MARGIN;
+		BoundingBox tmp = new BoundingBox(l.getX() - size, Double.NEGATIVE_INFINITY, l.getZ() - size, l.getX() + size,
+				Double.POSITIVE_INFINITY, l.getZ() + size);
+
+		return box == null ? tmp : box.union(tmp);
+	}
+
+	// invalidate the tower line of sight and check the powerup landing column
+	// after the block change is applied
+	private void blockChanged(Block b) {
+		blockEpoch++;
+		slice.defer(() -> game.refreshLanding(b));
+	}
+
+	// check if block was placed by player or not
+	private boolean isProtected(Block block) {
+		return !placedBlocks.contains(block);
+	}
+
+	// damage the towers in range of an explosion
+	private void damageTowers(Location l, double range, int damage) {
+		if (l.distanceSquared(game.getBlueTower().getTower().getLocation()) < range * range)
+			game.getBlueTower().damage(damage);
+		if (l.distanceSquared(game.getRedTower().getTower().getLocation()) < range * range)
+			game.getRedTower().damage(damage);
+	}
+
+	private void createCircle(Location position, int radius, Material m) {
+		HashSet<Block> blocks = new HashSet<>();
+
+		for (double i = 0.0; i < 360.0; i += 0.05) {
+			double angle = i * Math.PI / 180;
+			int x = (int) (position.getX() + radius * Math.cos(angle));
+			int z = (int) (position.getZ() + radius * Math.sin(angle));
+			Location tmp = new Location(position.getWorld(), x, position.getY(), z);
+			blocks.add(position.getWorld().getHighestBlockAt(tmp));
+		}
+
+		// blocks are placed as cosmetic work inside the arena tick budget
+		blocks.forEach(e -> slice.defer(() -> e.setType(m)));
+	}
+
+	@SuppressWarnings("unchecked")
+	private <V> Map<String, V> read(String f) throws IOException, ClassNotFoundException {
+		BukkitObjectInputStream in = new BukkitObjectInputStream(new FileInputStream(new File(folder, f)));
+		Map<String, V> tmp = (Map<String, V>) in.readObject();
+		in.close();
+		return tmp;
+	}
+
+	static void write(Map<String, ?> serializedObj, File file) throws IOException {
+		// settings are saved as yaml to be edited by hand
+		if (file.getName().endsWith(".yml")) {
+			SettingsWatcher.write(serializedObj, file);
+			return;
+		}
+
+		if (!file.exists())
+			file.createNewFile();
+
+		BukkitObjectOutputStream out = new BukkitObjectOutputStream(new FileOutputStream(file));
+		out.writeObject(serializedObj);
+		out.close();
+	}
+}
@@ -0,0 +1,114 @@
+package com.siege.core;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import org.bukkit.ChatColor;
+import org.bukkit.entity.Player;
+import org.bukkit.event.player.AsyncPlayerChatEvent;
+
+import com.siege.data.constants.SiegeColor;
+
+/**
+ * chat channels of the arenas. Team membership is published by the bukkit
+ * thread as an immutable snapshot replaced on every team change, so the chat
+ * threads can route the messages without touching the arenas. Messages are
+ * delivered changing the recipients and the format of the chat event:
+ * <ul>
+ * <li>team players talk to their arena, or only to their team if the message
+ * starts with {@value #TEAM_CHAT}</li>
+ * <li>spectators talk to the players which don't play in any arena</li>
+ * </ul>
+ * 
+ * @author Tommaso
+ *
+ */
+final class SiegeChat {
+
+	// messages starting with this prefix are sent to the team only
+	static final String TEAM_CHAT = "!";
+
+	private static final String SPECTATOR_FORMAT = ChatColor.DARK_PURPLE + "[Spectator] %1$s: " + ChatColor.GOLD
+			+ "%2$s";
+
+	// channels of the team players
+	private volatile Map<UUID, Channel> channels = Collections.emptyMap();
+
+	/**
+	 * build a new snapshot of the arena teams
+	 * 
+	 * @param arenas the registered arenas
+	 */
+	void publish(Collection<SiegeArena> arenas) {
+		HashMap<UUID, Channel> tmp = new HashMap<>();
+
+		for (SiegeArena arena : arenas) {
+			List<Player> blue = arena.getBlueTeam();
+			List<Player> red = arena.getRedTeam();
+			if (blue.isEmpty() && red.isEmpty())
+				continue;
+
+			Set<Player> all = new HashSet<>(blue);
+			all.addAll(red);
+			all = Collections.unmodifiableSet(all);
+
+			Channel blueChannel = new Channel(arena.getId(), SiegeColor.BLUE, blue, all);
+			Channel redChannel = new Channel(arena.getId(), SiegeColor.RED, red, all);
+
+			blue.forEach(p -> tmp.put(p.getUniqueId(), blueChannel));
+			red.forEach(p -> tmp.put(p.getUniqueId(), redChannel));
+		}
+
+		channels = Collections.unmodifiableMap(tmp);
+	}
+
+	/**
+	 * route a chat message to its channel. Safe to call outside the bukkit thread
+	 * 
+	 * @param event the chat event
+	 */
+	void route(AsyncPlayerChatEvent event) {
+		Map<UUID, Channel> snapshot = channels;
+		Channel c = snapshot.get(event.getPlayer().getUniqueId());
+
+		if (c == null) {
+			// players of the matches don't read the spectators
+			event.getRecipients().removeIf(p -> snapshot.containsKey(p.getUniqueId()));
+			event.setFormat(SPECTATOR_FORMAT);
+			return;
+		}
+
+		boolean team = event.getMessage().startsWith(TEAM_CHAT) && event.getMessage().length() > TEAM_CHAT.length();
+		if (team)
+			event.setMessage(event.getMessage().substring(TEAM_CHAT.length()));
+
+		event.getRecipients().clear();
+		event.getRecipients().addAll(team ? c.team : c.arena);
+		event.setFormat(team ? c.teamFormat : c.arenaFormat);
+	}
+
+	// recipients and formats of a team, built once per snapshot
+	private static final class Channel {
+
+		private final Set<Player> team;
+		private final Set<Player> arena;
+
+		private final String teamFormat;
+		private final String arenaFormat;
+
+		private Channel(String id, SiegeColor color, List<Player> team, Set<Player> arena) {
+			this.team = Collections.unmodifiableSet(new HashSet<>(team));
+			this.arena = arena;
+
+			String prefix = (color == SiegeColor.BLUE ? ChatColor.BLUE + "[Blue] " : ChatColor.DARK_RED + "[Red] ");
+			this.teamFormat = ChatColor.GRAY + "(team) " + prefix + "%1$s: " + ChatColor.GOLD + "%2$s";
+			this.arenaFormat = ChatColor.GRAY + "[" + id + "] " + prefix + "%1$s: " + ChatColor.GOLD + "%2$s";
+		}
+	}
+}
@@ -2,35 +2,33 @@ package com.siege.core;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 import static java.lang.Integer.parseInt;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.lang.reflect.InvocationTargetException;
 
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
-import org.bukkit.GameMode;
 import org.bukkit.Location;
-import org.bukkit.Material;
-import org.bukkit.block.Block;
+import org.bukkit.World;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
 import org.bukkit.command.TabCompleter;
-import org.bukkit.entity.Arrow;
-import org.bukkit.entity.EntityType;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.entity.Player;
-import org.bukkit.entity.TNTPrimed;
 import org.bukkit.entity.Wither;
-import org.bukkit.entity.WitherSkull;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.HandlerList;
 import org.bukkit.event.Listener;
@@ -43,29 +41,26 @@ import org.bukkit.event.entity.EntityPickupItemEvent;
 import org.bukkit.event.entity.EntityTargetEvent;
 import org.bukkit.event.entity.ProjectileHitEvent;
 import org.bukkit.event.player.AsyncPlayerChatEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
 import org.bukkit.event.world.WorldSaveEvent;
 import org.bukkit.plugin.java.JavaPlugin;
-import org.bukkit.scheduler.BukkitRunnable;
-import org.bukkit.util.io.BukkitObjectInputStream;
-import org.bukkit.util.io.BukkitObjectOutputStream;
 
 import com.siege.data.Robot;
-import com.siege.data.SiegeBoard;
+import com.siege.data.SiegeKit;
 import com.siege.data.Tower;
+import com.siege.data.constants.EffectQuality;
 import com.siege.data.constants.SiegeColor;
 import com.siege.data.constants.SiegeItems;
 
-import javafx.collections.FXCollections;
-import javafx.collections.ListChangeListener.Change;
 import siege.exeptions.SiegeException;
-import siege.listeners.SiegeBaseListener;
 import siege.listeners.SiegeGameListener;
 import siege.util.BukkitRestricted;
-import siege.util.ImmutableLocation;
+import javafx.collections.ListChangeListener.Change;
 import javafx.collections.ObservableList;
 
 /**
- * plugin class
+ * plugin class. The plugin handles many arenas at the same time, every method
+ * of the game api takes the id of the arena where it must be applied
  * 
  * @author Tommaso
  *
@@ -75,16 +70,46 @@ public final class SiegeCraft extends JavaPlugin implements Listener {
 
 	private static SiegeCraft instance;
 
-	// red and blue team lists
-	private final ObservableList<Player> redTeam = FXCollections.observableArrayList();
-	private final ObservableList<Player> blueTeam = FXCollections.observableArrayList();
+	// ticks between two checks for idle arenas and idle time before unloading
+	private static final long IDLE_CHECK_PERIOD = 600;
+	private static final long IDLE_TIMEOUT = 5 * 60 * 1000;
+
+	/**
+	 * name of the kit given to the players by the base listener
+	 */
+	public static final String DEFAULT_KIT = "default";
+
+	// registered arenas by id
+	private final Map<String, SiegeArena> arenas = new LinkedHashMap<>();
+
+	// ids of the arenas being cloned
+	private final Set<String> cloning = new HashSet<>();
+
+	// single task driving the periodic and cosmetic work of every arena
+	private SiegeScheduler scheduler;
+	private SiegeTask idleUnloader;
+
+	// reloads the arena settings edited on disk, null if the files can't be watched
+	private SettingsWatcher settingsWatcher;
+
+	// state of the games for the other threads, replaced every tick
+	private volatile GameSnapshot snapshot = GameSnapshot.EMPTY;
+	private SiegeTask snapshots;
+
+	// matchmaking queue filling the arenas
+	private SiegeQueue queue;
+
+	// chat channels of the arena teams
+	private final SiegeChat chat = new SiegeChat();
 
-	// support game class
-	private final SiegeBoard scoreboard = new SiegeBoard(redTeam, blueTeam);
-	private final SiegeGame game = new SiegeGame(scoreboard);
+	// single task drawing the powerup trails of every arena
+	private SiegeEffects effects;
 
-	// list of player placed blocks
-	private final HashSet<ImmutableLocation> placedBlocks = new HashSet<>();
+	// regions of the loaded arenas by world and chunk
+	private final RegionIndex regions = new RegionIndex();
+
+	// kits by name, the default kit is always defined
+	private final Map<String, SiegeKit> kits = new HashMap<>();
 
 	/**
 	 * constructor for SiegeCraft plugin
@@ -97,45 +122,358 @@ public final class SiegeCraft extends JavaPlugin implements Listener {
 		if (instance != null)
 			throw new IllegalAccessError(
 					"Detected 2 plugin instances. Please don't create any instance and use getInstance()");
+	}
+
+	/**
+	 * create a new empty arena. Towers, spawns and powerup area must be set before
+	 * starting a game on it
+	 * 
+	 * @param id the arena id (letters, numbers, '-' and '_' only)
+	 * @return the created arena
+	 * 
+	 * @throws SiegeException        if the id is not valid or already used
+	 * @throws IllegalStateException if the caller is not the bukkit thread
+	 */
+	public SiegeArena createArena(String id) {
+		checkThread();
 
-		registerListener(SiegeBaseListener.class);
+		return createArena(id, null);
 	}
 
 	/**
-	 * register new Listener by class name
+	 * create a new empty arena as instance of a map template. Games started on the
+	 * template run on the first ready instance, so the next game can start while
+	 * the instance of the last one is being reset
 	 * 
-	 * @param s the class of the listener to be registered
-	 * @throws SiegeException        if listener cannot be instantiated
+	 * @param id       the arena id (letters, numbers, '-' and '_' only)
+	 * @param template the map template or null
+	 * @return the created arena
+	 * 
+	 * @throws SiegeException        if the id is not valid or already used
 	 * @throws IllegalStateException if the caller is not the bukkit thread
 	 */
-	public void registerListener(Class<? extends SiegeGameListener> s) {
+	public SiegeArena createArena(String id, String template) {
 		checkThread();
 
-		try {
-			getListeners().add(s.getConstructor(SiegeBoard.class, ObservableList.class, ObservableList.class)
-					.newInstance(scoreboard, redTeam, blueTeam));
-		} catch (InstantiationException | IllegalAccessException | IllegalArgumentException | InvocationTargetException
-				| NoSuchMethodException | SecurityException e) {
-			throw new SiegeException("Listener cannot be instantiated. Reason: " + e.getMessage());
+		if (id == null || !id.matches("[A-Za-z0-9_-]+"))
+			throw new SiegeException("Invalid arena id");
+
+		if (arenas.containsKey(id))
+			throw new SiegeException("Arena " + id + " already exists");
+
+		if (template != null && arenas.containsKey(template))
+			throw new SiegeException("Template " + template + " is already an arena id");
+
+		File folder = new File(new File(getDataFolder(), "arenas"), id);
+		SiegeArena arena = new SiegeArena(id, folder, scheduler.register());
+		arena.setTemplate(template);
+		arenas.put(id, arena);
+
+		if (settingsWatcher != null)
+			settingsWatcher.watch(id, folder);
+
+		// the chat reads a snapshot of the teams published on every change
+		arena.getBlueTeam().addListener((Change<? extends Player> c) -> chat.publish(arenas.values()));
+		arena.getRedTeam().addListener((Change<? extends Player> c) -> chat.publish(arenas.values()));
+		return arena;
+	}
+
+	/**
+	 * stop the game of an arena, remove its towers and delete its saved files
+	 * 
+	 * @param id the arena id
+	 * 
+	 * @throws SiegeException        if the arena doesn't exist
+	 * @throws IllegalStateException if the caller is not the bukkit thread
+	 */
+	public void removeArena(String id) {
+		checkThread();
+
+		SiegeArena arena = arenas.get(id);
+		if (arena == null)
+			throw new SiegeException("Arena " + id + " not found");
+
+		arena.dispose();
+		arenas.remove(id);
+		regions.remove(arena);
+		scheduler.unregister(arena.getSlice());
+		chat.publish(arenas.values());
+
+		if (settingsWatcher != null)
+			settingsWatcher.unwatch(id);
+
+		File[] files = arena.getFolder().listFiles();
+		if (files != null)
+			for (File f : files)
+				f.delete();
+		arena.getFolder().delete();
+	}
+
+	/**
+	 * create a new instance of an arena. The world of the arena is copied region
+	 * file by region file outside the bukkit thread, the new arena uses the same
+	 * map template (or the source arena id as template) and its world is loaded
+	 * when the arena is used the first time
+	 * 
+	 * @param source the id of the arena to copy. It must have its own world
+	 * @param id     the id of the new arena, also used as world name
+	 * @return a future completed on the bukkit thread with the new arena
+	 * 
+	 * @throws SiegeException        if the arena cannot be cloned
+	 * @throws IllegalStateException if the caller is not the bukkit thread
+	 */
+	public CompletableFuture<SiegeArena> cloneArena(String source, String id) {
+		checkThread();
+
+		SiegeArena from = getArena(source);
+		from.ensureLoaded();
+
+		if (id == null || !id.matches("[A-Za-z0-9_-]+"))
+			throw new SiegeException("Invalid arena id");
+
+		if (arenas.containsKey(id) || cloning.contains(id))
+			throw new SiegeException("Arena " + id + " already exists");
+
+		if (from.getWorld() == null || from.getWorld().equals(Bukkit.getWorlds().get(0)))
+			throw new SiegeException("Only arenas with their own world can be cloned");
+
+		if (!from.isReady())
+			throw new SiegeException("Arena " + source + " must be ready to be cloned");
+
+		File worldFolder = new File(Bukkit.getWorldContainer(), id);
+		if (worldFolder.exists() || Bukkit.getWorld(id) != null)
+			throw new SiegeException("World " + id + " already exists");
+
+		// region files on disk must be up to date before copying them, and must
+		// not be written by the autosave while they are copied
+		World world = from.getWorld();
+		boolean autoSave = world.isAutoSave();
+		world.save();
+		world.setAutoSave(false);
+
+		File sourceFolder = world.getWorldFolder();
+		File folder = new File(new File(getDataFolder(), "arenas"), id);
+		String template = from.getTemplate() != null ? from.getTemplate() : from.getId();
+		Map<String, Map<String, ?>> files = from.serialize();
+
+		CompletableFuture<SiegeArena> future = new CompletableFuture<>();
+		cloning.add(id);
+
+		Bukkit.getScheduler().runTaskAsynchronously(this, () -> {
+			try {
+				ArenaCloner.copyWorld(sourceFolder, worldFolder);
+				ArenaCloner.writeArena(files, folder, id);
+			} catch (IOException e) {
+				Bukkit.getScheduler().runTask(this, () -> {
+					world.setAutoSave(autoSave);
+					cloning.remove(id);
+					future.completeExceptionally(new SiegeException("Cannot clone arena: " + e.getMessage()));
+				});
+				return;
+			}
+
+			Bukkit.getScheduler().runTask(this, () -> {
+				world.setAutoSave(autoSave);
+				cloning.remove(id);
+				SiegeArena arena = createArena(id, template);
+				arena.load();
+				future.complete(arena);
+			});
+		});
+
+		return future;
+	}
+
+	/**
+	 * get an arena by id. The world of a lazily loaded arena is not loaded here,
+	 * but when the arena is edited, gets players, starts a game or is cloned
+	 * 
+	 * @param id the arena id
+	 * @return the arena
+	 * 
+	 * @throws SiegeException        if the arena doesn't exist
+	 * @throws IllegalStateException if the caller is not the bukkit thread
+	 */
+	public SiegeArena getArena(String id) {
+		checkThread();
+
+		SiegeArena arena = arenas.get(id);
+		if (arena == null)
+			throw new SiegeException("Arena " + id + " not found");
+
+		return arena;
+	}
+
+	/**
+	 * get all the registered arenas
+	 * 
+	 * @return an unmodifiable collection of arenas
+	 * 
+	 * @throws IllegalStateException if the caller is not the bukkit thread
+	 */
+	public Collection<SiegeArena> getArenas() {
+		checkThread();
+		return Collections.unmodifiableCollection(arenas.values());
+	}
+
+	/**
+	 * get the state of the games of every arena as of the last tick. Unlike the
+	 * other methods it can be called by any thread, the snapshot is immutable
+	 * 
+	 * @return the last published snapshot
+	 */
+	public GameSnapshot getSnapshot() {
+		return snapshot;
+	}
+
+	/**
+	 * get the matchmaking queue
+	 * 
+	 * @return the queue
+	 * 
+	 * @throws IllegalStateException if the caller is not the bukkit thread
+	 */
+	public SiegeQueue getQueue() {
+		checkThread();
+		return queue;
+	}
+
+	/**
+	 * get a kit defined in the kits file
+	 * 
+	 * @param name the kit name
+	 * @return the kit
+	 * 
+	 * @throws SiegeException        if the kit doesn't exist
+	 * @throws IllegalStateException if the caller is not the bukkit thread
+	 */
+	public SiegeKit getKit(String name) {
+		checkThread();
+
+		SiegeKit kit = kits.get(name);
+		if (kit == null)
+			throw new SiegeException("Kit " + name + " not found");
+		return kit;
+	}
+
+	/**
+	 * get the quality of the effects, lowered when the server is late
+	 * 
+	 * @return the current effect quality
+	 * 
+	 * @throws IllegalStateException if the caller is not the bukkit thread
+	 */
+	public EffectQuality getEffectQuality() {
+		checkThread();
+		return scheduler.getGovernor().getQuality();
+	}
+
+	/**
+	 * get the instance of a map template where the next game can start. Instances
+	 * which already have players in their teams are preferred
+	 * 
+	 * @param template the map template
+	 * @return a ready arena
+	 * 
+	 * @throws SiegeException        if no instance of the template is ready
+	 * @throws IllegalStateException if the caller is not the bukkit thread
+	 */
+	public SiegeArena getReadyArena(String template) {
+		checkThread();
+
+		SiegeArena first = null;
+		SiegeArena unloaded = null;
+		for (SiegeArena arena : arenas.values())
+			if (template.equals(arena.getTemplate()))
+				if (!arena.isLoaded()) {
+					if (unloaded == null)
+						unloaded = arena;
+				} else if (arena.isReady()) {
+					if (arena.hasPlayers())
+						return arena;
+					if (first == null)
+						first = arena;
+				}
+
+		// instances whose world is not loaded are used only if the others are busy
+		if (first == null && unloaded != null) {
+			unloaded.ensureLoaded();
+			if (unloaded.isReady())
+				first = unloaded;
 		}
+
+		if (first == null)
+			throw new SiegeException("No arena of map " + template + " is ready");
+
+		return first;
 	}
 
 	/**
-	 * get all siege game listeners
+	 * get the arena which region contains the location
+	 * 
+	 * @param l the location
+	 * @return the arena or null if the location is outside every arena
 	 * 
 	 * @throws IllegalStateException if the caller is not the bukkit thread
+	 */
+	public SiegeArena getArenaAt(Location l) {
+		checkThread();
+
+		return regions.at(l);
+	}
+
+	/**
+	 * get the arena where the player is in a team
+	 * 
+	 * @param p the player
+	 * @return the arena or null if the player is not in any team
+	 * 
+	 * @throws IllegalStateException if the caller is not the bukkit thread
+	 */
+	public SiegeArena getPlayerArena(Player p) {
+		checkThread();
+
+		for (SiegeArena arena : arenas.values())
+			if (arena.teamOf(p) != null)
+				return arena;
+
+		return null;
+	}
+
+	/**
+	 * register new Listener by class name in an arena
+	 * 
+	 * @param arena the arena id
+	 * @param s     the class of the listener to be registered
+	 * @throws SiegeException        if listener cannot be instantiated
+	 * @throws IllegalStateException if the caller is not the bukkit thread
+	 */
+	public void registerListener(String arena, Class<? extends SiegeGameListener> s) {
+		checkThread();
+
+		getArena(arena).registerListener(s);
+	}
+
+	/**
+	 * get all siege game listeners of an arena
+	 * 
+	 * @param arena the arena id
+	 * 
+	 * @throws SiegeException        if the arena doesn't exist
+	 * @throws IllegalStateException if the caller is not the bukkit thread
 	 * 
 	 * @return the list of all game listeners editable (remove and add are allowed)
 	 */
-	public ObservableList<SiegeGameListener> getListeners() {
+	public ObservableList<SiegeGameListener> getListeners(String arena) {
 		checkThread();
 
-		return game.getListeners();
+		return getArena(arena).getListeners();
 	}
 
 	/**
 	 * set the spawn point for a team
 	 * 
+	 * @param arena     the arena id
 	 * @param l         a block where they must respawn
 	 * @param teamColor a team color owner of this spawn
 	 * 
@@ -143,37 +481,16 @@ public final class SiegeCraft extends JavaPlugin implements Listener {
 	 * @throws IllegalStateException if the caller is not the bukkit thread
 	 */
 
-	public void setSpawn(Location l, SiegeColor teamColor) {
+	public void setSpawn(String arena, Location l, SiegeColor teamColor) {
 		checkThread();
 
-		if (l == null || teamColor == null)
-			throw new SiegeException("Null and negative values are not allowed");
-
-		if (teamColor == SiegeColor.BLUE) {
-			// set blue spawn
-			game.setBlueSpawn(l);
-			for (int x = -1; x <= 1; x++)
-				for (int z = -1; z <= 1; z++) {
-					game.getBlueSpawn().add(x, -1, z);
-					game.getBlueSpawn().getBlock().setType(Material.BLUE_WOOL);
-					game.getBlueSpawn().add(-x, +1, -z);
-				}
-		} else {
-			// set red spawn
-			game.setRedSpawn(l);
-			for (int x = -1; x <= 1; x++)
-				for (int z = -1; z <= 1; z++) {
-					game.getRedSpawn().add(x, -1, z);
-					game.getRedSpawn().getBlock().setType(Material.RED_WOOL);
-					game.getRedSpawn().add(-x, +1, -z);
-				}
-		}
-
+		getArena(arena).setSpawn(l, teamColor);
 	}
 
 	/**
 	 * set the powerup spawn location
 	 * 
+	 * @param arena   the arena id
 	 * @param l       the middle point of the spawn area
 	 * @param seconds delay between powerup spawn
 	 * @param radius  the radius of the spawn area
@@ -182,29 +499,16 @@ public final class SiegeCraft extends JavaPlugin implements Listener {
 	 * @throws IllegalStateException if the caller is not the bukkit thread
 	 */
 
-	public void setPowerupSpawn(Location l, int seconds, int radius) {
+	public void setPowerupSpawn(String arena, Location l, int seconds, int radius) {
 		checkThread();
 
-		createCircle(l, radius, Material.GREEN_CONCRETE);
-		if (game.isPlaying())
-			throw new SiegeException("Cannot change powerup spawn during game");
-
-		if (l == null || seconds <= 0 || radius <= 0)
-			throw new SiegeException("Null and negative values are not allowed");
-
-		l.add(0, -1, 0);
-		l.getBlock().setType(Material.EMERALD_BLOCK);
-		l.add(0, 1, 0);
-		// set spawn location and details
-		game.setPowerupSpawn(l);
-		game.getSettings().put("powerupSpawnDelay", seconds);
-		game.getSettings().put("powerupSpawnRadius", radius);
-
+		getArena(arena).setPowerupSpawn(l, seconds, radius);
 	}
 
 	/**
 	 * spawn a new robot
 	 * 
+	 * @param arena     the arena id
 	 * @param l         spawn location
 	 * @param ownerTeam owner of the robot
 	 * @param damage    base damage
@@ -215,24 +519,10 @@ public final class SiegeCraft extends JavaPlugin implements Listener {
 	 * @throws IllegalStateException if the caller is not the bukkit thread
 	 */
 
-	public Robot spawnRobot(Location l, SiegeColor ownerTeam, int damage, int health) {
+	public Robot spawnRobot(String arena, Location l, SiegeColor ownerTeam, int damage, int health) {
 		checkThread();
 
-		if (!game.isPlaying())
-			throw new SiegeException("Robots can be spawned only during game");
-
-		if (l == null || ownerTeam == null || damage <= 0 || health <= 0)
-			throw new SiegeException("Null and negative values are not allowed");
-		Tower ally = ownerTeam == SiegeColor.BLUE ? game.getBlueTower() : game.getRedTower();
-		Tower enemy = ownerTeam == SiegeColor.BLUE ? game.getRedTower() : game.getBlueTower();
-
-		// create robot and call every listener every time robot gets damage
-		Robot r = ally.createRobot(enemy, damage, health);
-		r.onRobotDamage(() -> game.getListeners().forEach(e -> e.onRobotDamage(ownerTeam, r)));
-		// call every listener on robot spawn
-		game.getListeners().forEach(e -> e.onRobotSpawn(ownerTeam, r, 0));
-
-		return r;
+		return getArena(arena).spawnRobot(l, ownerTeam, damage, health);
 	}
 
 	/**
@@ -241,6 +531,7 @@ public final class SiegeCraft extends JavaPlugin implements Listener {
 	 * 
 	 * Note: negative values will be considerated as positive using v)
 	 * 
+	 * @param arena                the arena id
 	 * @param l                    the tower position
 	 * @param color                team color RED/BLUE only supported
 	 * @param damage               damage per tick
@@ -255,67 +546,38 @@ public final class SiegeCraft extends JavaPlugin implements Listener {
 	 * @throws IllegalStateException if the caller is not the bukkit thread
 	 * 
 	 */
-	public Tower spawnTower(Location l, SiegeColor color, int damage, int towerRadius, int health,
+	public Tower spawnTower(String arena, Location l, SiegeColor color, int damage, int towerRadius, int health,
 			double robotLevelMultiplier, int robotBaseDamage, int robotHealth) {
 		checkThread();
 
-		if (game.isPlaying())
-			throw new SiegeException("Cannot change tower during game");
-
-		if (l == null || color == null || damage <= 0 || robotLevelMultiplier <= 0 || towerRadius <= 0 || health <= 0
-				|| robotHealth <= 0)
-			throw new SiegeException("Null and negative values are not allowed");
-
-		createCircle(l, towerRadius, color == SiegeColor.BLUE ? Material.BLUE_CONCRETE : Material.RED_CONCRETE);
-
-		if (color == SiegeColor.BLUE) {
-			// create tower and call every listener every time tower gets damage
-			game.setBlueTower(new Tower(blueTeam, redTeam, l, damage, towerRadius, health, robotLevelMultiplier,
-					robotBaseDamage, robotHealth));
-
-			game.getBlueTower().onTowerDamage(() -> {
-				if (game.getBlueTower().getHealth() <= 0)
-					stop();
-			});
-			return game.getBlueTower();
-		} else {
-			// create tower and call every listener every time tower gets damage
-			game.setRedTower(new Tower(redTeam, blueTeam, l, damage, towerRadius, health, robotLevelMultiplier,
-					robotBaseDamage, robotHealth));
-
-			game.getRedTower().onTowerDamage(() -> {
-				if (game.getRedTower().getHealth() <= 0)
-					stop();
-			});
-			return game.getRedTower();
-		}
+		return getArena(arena).spawnTower(l, color, damage, towerRadius, health, robotLevelMultiplier,
+				robotBaseDamage, robotHealth);
 	}
 
 	/**
-	 * start a new game of siege if are set towers, player spawn areas, coins spawn
-	 * area with the given max play time and robot spawn delay
+	 * start a new game of siege in an arena if are set towers, player spawn areas,
+	 * coins spawn area with the given max play time and robot spawn delay
 	 * 
+	 * @param arena       the arena id or a map template
 	 * @param maxPlayTime max time playable in seconds
 	 * @param robotDelay  robot spawn check delay in seconds
+	 * @return the arena where the game started
 	 * 
 	 * @throws SiegeException        if an error occur
 	 * @throws IllegalStateException if the caller is not the bukkit thread
 	 */
-	public void startGame(int maxPlayTime, int robotDelay) {
+	public SiegeArena startGame(String arena, int maxPlayTime, int robotDelay) {
 		checkThread();
 
-		game.checkState();
-
-		game.getSettings().put("maxPlayTime", maxPlayTime);
-		game.getSettings().put("robotSpawnDelay", robotDelay);
-
-		game.play();
-
+		SiegeArena target = resolveArena(arena);
+		target.startGame(maxPlayTime, robotDelay);
+		return target;
 	}
 
 	/**
 	 * set the team for a list of players
 	 * 
+	 * @param arena   the arena id or a map template
 	 * @param team    a team color
 	 * @param players a player's names list
 	 * 
@@ -323,31 +585,36 @@ public final class SiegeCraft extends JavaPlugin implements Listener {
 	 * @throws IllegalStateException if the caller is not the bukkit thread
 	 */
 
-	public void setPlayersTeam(SiegeColor team, List<String> players) {
+	public void setPlayersTeam(String arena, SiegeColor team, List<String> players) {
 		checkThread();
 
-		if (game.isPlaying())
-			throw new SiegeException("Cannot change players teams during game");
+		SiegeArena target = resolveArena(arena);
+
+		if (players == null)
+			throw new SiegeException("Null values are not allowed");
 
-		if (team == null || players == null)
+		if (team == null)
 			throw new SiegeException("Null values are not allowed");
 
+		// every name is resolved once, a player can play only in one arena at time
+		List<Player> resolved = new ArrayList<>(players.size());
 		for (String p : players) {
-			// check if players are in team
-			if (blueTeam.contains(Bukkit.getPlayer(p)) || redTeam.contains(Bukkit.getPlayer(p)))
-				throw new SiegeException("Player already in a team");
-
-			// add the player
-			if (team == SiegeColor.BLUE)
-				blueTeam.add(Bukkit.getPlayer(p));
-			else
-				redTeam.add(Bukkit.getPlayer(p));
+			Player player = Bukkit.getPlayer(p);
+			SiegeArena current = player != null ? getPlayerArena(player) : null;
+			if (current != null && current != target)
+				throw new SiegeException("Player " + p + " already plays in another arena");
+			resolved.add(player);
 		}
+
+		target.addPlayers(team, resolved);
+		resolved.forEach(queue::leave);
+		target.warmup();
 	}
 
 	/**
-	 * remove players from every team
+	 * remove players from every team of an arena
 	 * 
+	 * @param arena   the arena id or a map template
 	 * @param players list of player to remove from their team
 	 * @return the team from which the player was removed
 	 * 
@@ -355,53 +622,24 @@ public final class SiegeCraft extends JavaPlugin implements Listener {
 	 * @throws IllegalStateException if the caller is not the bukkit thread
 	 */
 
-	public SiegeColor removePlayersTeam(List<String> players) {
+	public SiegeColor removePlayersTeam(String arena, List<String> players) {
 		checkThread();
 
-		if (game.isPlaying())
-			throw new SiegeException("Cannot change players teams during game");
-
-		for (String p : players) {
-			if (blueTeam.remove(Bukkit.getPlayer(p)))
-				return SiegeColor.BLUE;
-			if (redTeam.remove(Bukkit.getPlayer(p)))
-				return SiegeColor.RED;
-		}
-
-		return null;
-
+		return resolveArena(arena).removePlayersTeam(players);
 	}
 
 	/**
-	 * ask to stop the game
+	 * ask to stop the game of an arena
+	 * 
+	 * @param arena the arena id
 	 * 
+	 * @throws SiegeException        if the arena doesn't exist
 	 * @throws IllegalStateException if the caller is not the bukkit thread
 	 */
-	public void stop() {
+	public void stop(String arena) {
 		checkThread();
 
-		if (!game.isPlaying())
-			return;
-
-		redTeam.clear();
-		blueTeam.clear();
-
-		placedBlocks.forEach(e -> e.getBlock().setType(Material.AIR));
-		placedBlocks.clear();
-
-		game.expireTimer();
-	}
-
-	/**
-	 * internal method to stop game when time expire
-	 */
-
-	private void timerStop() {
-		redTeam.clear();
-		blueTeam.clear();
-
-		placedBlocks.forEach(e -> e.getBlock().setType(Material.AIR));
-		placedBlocks.clear();
+		getArena(arena).stop();
 	}
 
 	/**
@@ -418,38 +656,136 @@ public final class SiegeCraft extends JavaPlugin implements Listener {
 
 		instance = this;
 
-		if (getDataFolder().exists())
-			try {
-				game.setRedTower(Tower.fromFile(redTeam, blueTeam, new File(getDataFolder(), "Red tower.sc")));
-				game.setBlueTower(Tower.fromFile(blueTeam, redTeam, new File(getDataFolder(), "Blue tower.sc")));
+		scheduler = new SiegeScheduler(this::qualityChanged);
+		scheduler.runTaskTimer(this, 1, 1);
+		effects = new SiegeEffects();
+		effects.runTimer(1, 1);
+		idleUnloader = SiegeTask.of("idle unloader", this::unloadIdleArenas).runTimer(IDLE_CHECK_PERIOD,
+				IDLE_CHECK_PERIOD);
 
-				game.setRedSpawn(Location.deserialize(read("Red spawn.sc")));
-				game.setBlueSpawn(Location.deserialize(read("Blue spawn.sc")));
+		queue = new SiegeQueue();
+		queue.runTimer(20, 20);
 
-				game.setPowerupSpawn(Location.deserialize(read("Powerup spawn.sc")));
-				game.getSettings().putAll(read("Game settings.sc"));
-			} catch (Exception e) {
-				System.err.println("Siege files are corrupted. Enabling default settings...");
-			}
+		snapshots = SiegeTask.of("game snapshot", this::publishSnapshot).runTimer(1, 1);
+
+		loadKits();
+
+		try {
+			settingsWatcher = new SettingsWatcher(this, this::reloadSettings);
+		} catch (IOException e) {
+			System.err.println("Cannot watch the arena settings, edits will be loaded on restart. Error: "
+					+ e.getMessage());
+		}
+
+		// files of the single arena versions are moved to the default arena
+		File arenasFolder = new File(getDataFolder(), "arenas");
+		File legacy = new File(getDataFolder(), "Red tower.sc");
+		if (legacy.exists() && !arenasFolder.exists()) {
+			File folder = new File(arenasFolder, "default");
+			folder.mkdirs();
+			for (String f : Arrays.asList("Red tower.sc", "Blue tower.sc", "Red spawn.sc", "Blue spawn.sc",
+					"Powerup spawn.sc", "Game settings.sc"))
+				new File(getDataFolder(), f).renameTo(new File(folder, f));
+		}
+
+		File[] saved = arenasFolder.listFiles(File::isDirectory);
+		if (saved != null)
+			for (File f : saved)
+				try {
+					createArena(f.getName()).load();
+				} catch (SiegeException e) {
+					System.err.println("Could not load arena " + f.getName() + ". Error: " + e.getMessage());
+				}
+
+		getCommand("arena").setTabCompleter(new TabCompleter() {
 
-		// add listener for time expired
-		game.onTimeChange(e -> {
-			if (e <= 0)
-				timerStop();
-			return null;
+			@Override
+			public List<String> onTabComplete(CommandSender sender, Command command, String label, String[] args) {
+				if (args.length == 1)
+					return Arrays.asList("create", "clone", "remove", "list", "timers");
+				if (args.length == 2 && !args[0].equalsIgnoreCase("create"))
+					return arenaIds();
+				if (args.length == 3 && args[0].equalsIgnoreCase("create"))
+					return Arrays.asList("<template>");
+				if (args.length == 3 && args[0].equalsIgnoreCase("clone"))
+					return Arrays.asList("<id>");
+				return null;
+			}
 		});
 
-		scoreboard.init();
+		getCommand("arena").setExecutor(new CommandExecutor() {
+
+			@Override
+			public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+				if (args.length < 1)
+					return false;
 
-		// add listener to check if player exists
-		blueTeam.addListener(SiegeCraft::onPlayerAdd);
-		redTeam.addListener(SiegeCraft::onPlayerAdd);
+				try {
+					switch (args[0].toLowerCase()) {
+					case "list":
+						for (SiegeArena arena : arenas.values())
+							sender.sendMessage(ChatColor.GOLD + arena.getId()
+									+ (arena.getTemplate() != null ? " (" + arena.getTemplate() + ")" : "") + ": "
+									+ arenaState(arena));
+						return true;
+					case "create":
+						if (args.length < 2)
+							return false;
+						createArena(args[1], args.length > 2 ? args[2] : null);
+						sender.sendMessage(ChatColor.GREEN + "Arena " + args[1] + " created successfully");
+						return true;
+					case "clone":
+						if (args.length < 3)
+							return false;
+						cloneArena(args[1], args[2]).whenComplete((arena, error) -> {
+							if (error != null)
+								sender.sendMessage(ChatColor.RED + "Command error: " + error.getMessage());
+							else
+								sender.sendMessage(ChatColor.GREEN + "Arena " + arena.getId() + " cloned successfully");
+						});
+						sender.sendMessage(ChatColor.GOLD + "Cloning arena " + args[1] + "...");
+						return true;
+					case "remove":
+						if (args.length < 2)
+							return false;
+						removeArena(args[1]);
+						sender.sendMessage(ChatColor.GOLD + "Arena " + args[1] + " removed");
+						return true;
+					case "timers":
+						long tick = getTimers().getTick();
+						sender.sendMessage(ChatColor.GOLD + "Tick: " + ChatColor.WHITE
+								+ String.format("%.1f ms, %.1f ms for deferrable work, %d deferred",
+										scheduler.getTickNanos() / 1e6, scheduler.getBudget() / 1e6,
+										getTimers().getDeferred()));
+						sender.sendMessage(ChatColor.GOLD + "Effect quality: " + ChatColor.WHITE
+								+ scheduler.getGovernor().getQuality() + String.format(", %.1f ms average tick",
+										scheduler.getGovernor().getAverage() / 1e6));
+						getTimers().getCounters().forEach((name, c) -> sender.sendMessage(ChatColor.GOLD + name + ": "
+								+ ChatColor.WHITE + c.getActive() + " active, "
+								+ (c.getLastTick() == tick ? c.getLastFires() : 0) + " runs in the last tick, "
+								+ c.getFires() + " runs, " + c.getAverageNanos() / 1000 + " µs per run"));
+						return true;
+					default:
+						return false;
+					}
+				} catch (SiegeException e) {
+					sender.sendMessage(ChatColor.RED + "Command error: " + e.getMessage());
+					return true;
+				} catch (Exception e) {
+					sender.sendMessage(ChatColor.RED + "Internal error: please contact the plugin maker.");
+					e.printStackTrace();
+					return true;
+				}
+			}
+		});
 
 		getCommand("spawnrobot").setTabCompleter(new TabCompleter() {
 
 			@Override
 			public List<String> onTabComplete(CommandSender sender, Command command, String label, String[] args) {
 				if (args.length == 1)
+					return arenaIds();
+				if (args.length == 2)
 					return Arrays.asList("Blue", "Red");
 				return null;
 			}
@@ -459,15 +795,15 @@ public final class SiegeCraft extends JavaPlugin implements Listener {
 
 			@Override
 			public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
-				if (args.length < 1)
+				if (args.length < 2)
 					return false;
 
 				// check caller is player
 				Player p = checkAndCast(sender);
 
 				try {
-					spawnRobot(p.getLocation(), SiegeColor.valueOf(args[0].toUpperCase()), 30, 2000);
-					sender.sendMessage(SiegeColor.valueOf(args[0].toUpperCase()) + "" + ChatColor.GREEN
+					spawnRobot(args[0], p.getLocation(), SiegeColor.valueOf(args[1].toUpperCase()), 30, 2000);
+					sender.sendMessage(SiegeColor.valueOf(args[1].toUpperCase()) + "" + ChatColor.GREEN
 							+ " robot spawned successfully");
 					return true;
 
@@ -491,6 +827,8 @@ public final class SiegeCraft extends JavaPlugin implements Listener {
 			@Override
 			public List<String> onTabComplete(CommandSender sender, Command command, String label, String[] args) {
 				if (args.length == 1)
+					return arenaIds();
+				if (args.length == 2)
 					return Arrays.asList("Blue", "Red");
 				return null;
 			}
@@ -500,7 +838,7 @@ public final class SiegeCraft extends JavaPlugin implements Listener {
 
 			@Override
 			public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
-				if (args.length < 1)
+				if (args.length < 2)
 					return false;
 
 				// check caller is player
@@ -508,8 +846,8 @@ public final class SiegeCraft extends JavaPlugin implements Listener {
 
 				try {
 					// try to set the player spawn
-					setSpawn(p.getLocation(), SiegeColor.valueOf(args[0].toUpperCase()));
-					sender.sendMessage(SiegeColor.valueOf(args[0].toUpperCase()) + "" + ChatColor.GREEN
+					setSpawn(args[0], p.getLocation(), SiegeColor.valueOf(args[1].toUpperCase()));
+					sender.sendMessage(SiegeColor.valueOf(args[1].toUpperCase()) + "" + ChatColor.GREEN
 							+ " spawn set successfully");
 					return true;
 				} catch (NumberFormatException e) {
@@ -534,8 +872,10 @@ public final class SiegeCraft extends JavaPlugin implements Listener {
 			@Override
 			public List<String> onTabComplete(CommandSender sender, Command command, String label, String[] args) {
 				if (args.length == 1)
-					return Arrays.asList("Blue", "Red");
+					return arenaIds();
 				if (args.length == 2)
+					return Arrays.asList("Blue", "Red");
+				if (args.length == 3)
 					return Arrays.asList("<radius>");
 				return null;
 			}
@@ -545,7 +885,7 @@ public final class SiegeCraft extends JavaPlugin implements Listener {
 
 			@Override
 			public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
-				if (args.length < 2)
+				if (args.length < 3)
 					return false;
 
 				// check caller is player
@@ -553,9 +893,9 @@ public final class SiegeCraft extends JavaPlugin implements Listener {
 
 				try {
 					// try to spawn a tower
-					spawnTower(p.getLocation(), SiegeColor.valueOf(args[0].toUpperCase()), 10, parseInt(args[1]), 5000,
-							0.1, 30, 2000);
-					sender.sendMessage(SiegeColor.valueOf(args[0].toUpperCase()) + "" + ChatColor.GREEN
+					spawnTower(args[0], p.getLocation(), SiegeColor.valueOf(args[1].toUpperCase()), 10,
+							parseInt(args[2]), 5000, 0.1, 30, 2000);
+					sender.sendMessage(SiegeColor.valueOf(args[1].toUpperCase()) + "" + ChatColor.GREEN
 							+ " tower created successfully");
 					return true;
 				} catch (NumberFormatException e) {
@@ -581,8 +921,10 @@ public final class SiegeCraft extends JavaPlugin implements Listener {
 			@Override
 			public List<String> onTabComplete(CommandSender sender, Command command, String label, String[] args) {
 				if (args.length == 1)
-					return Arrays.asList("<delay>");
+					return arenaIds();
 				if (args.length == 2)
+					return Arrays.asList("<delay>");
+				if (args.length == 3)
 					return Arrays.asList("<radius>");
 				return null;
 			}
@@ -592,7 +934,7 @@ public final class SiegeCraft extends JavaPlugin implements Listener {
 
 			@Override
 			public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
-				if (args.length < 2)
+				if (args.length < 3)
 					return false;
 
 				// check caller is player
@@ -600,7 +942,7 @@ public final class SiegeCraft extends JavaPlugin implements Listener {
 
 				try {
 					// try to set powerup spawn point
-					setPowerupSpawn(p.getLocation(), (int) parseInt(args[0]), (int) parseInt(args[1]));
+					setPowerupSpawn(args[0], p.getLocation(), (int) parseInt(args[1]), (int) parseInt(args[2]));
 					sender.sendMessage(ChatColor.GREEN + "powerup spawn set successfully");
 					return true;
 				} catch (NumberFormatException e) {
@@ -624,6 +966,9 @@ public final class SiegeCraft extends JavaPlugin implements Listener {
 
 			@Override
 			public List<String> onTabComplete(CommandSender sender, Command command, String label, String[] args) {
+				if (args.length == 1)
+					return arenaAndTemplateIds();
+
 				ArrayList<String> players = new ArrayList<>();
 				Arrays.asList(Bukkit.getOfflinePlayers()).forEach(e -> players.add(e.getName()));
 				return players;
@@ -634,15 +979,21 @@ public final class SiegeCraft extends JavaPlugin implements Listener {
 
 			@Override
 			public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
-				if (args.length < 1)
+				if (args.length < 2)
 					return false;
 
 				// check caller is a player
 				checkAndCast(sender);
 
 				try {
-					removePlayersTeam(Arrays.asList(args));
-					sender.sendMessage(ChatColor.GOLD + "" + Arrays.asList(args) + " have been removed from his team");
+					List<String> players = new ArrayList<>(Arrays.asList(args));
+					players.remove(0);
+
+					removePlayersTeam(args[0], players);
+					sender.sendMessage(ChatColor.GOLD + "" + players + " have been removed from his team");
+					return true;
+				} catch (SiegeException e) {
+					sender.sendMessage(ChatColor.RED + "Command error: " + e.getMessage());
 					return true;
 				} catch (Exception e) {
 					sender.sendMessage(ChatColor.RED + "Internal error: please contact the plugin maker.");
@@ -656,6 +1007,8 @@ public final class SiegeCraft extends JavaPlugin implements Listener {
 			@Override
 			public List<String> onTabComplete(CommandSender sender, Command command, String label, String[] args) {
 				if (args.length == 1)
+					return arenaAndTemplateIds();
+				if (args.length == 2)
 					return Arrays.asList("Blue", "Red");
 
 				ArrayList<String> players = new ArrayList<>();
@@ -668,7 +1021,7 @@ public final class SiegeCraft extends JavaPlugin implements Listener {
 
 			@Override
 			public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
-				if (args.length < 2)
+				if (args.length < 3)
 					return false;
 
 				// check caller is a player
@@ -677,10 +1030,11 @@ public final class SiegeCraft extends JavaPlugin implements Listener {
 				try {
 					List<String> players = new ArrayList<>(Arrays.asList(args));
 					players.remove(0);
+					players.remove(0);
 
-					setPlayersTeam(SiegeColor.valueOf(args[0].toUpperCase()), players);
+					setPlayersTeam(args[0], SiegeColor.valueOf(args[1].toUpperCase()), players);
 					sender.sendMessage(ChatColor.GOLD + players.toString() + " team set to "
-							+ SiegeColor.valueOf(args[0].toUpperCase()));
+							+ SiegeColor.valueOf(args[1].toUpperCase()));
 					return true;
 				} catch (SiegeException e) {
 					sender.sendMessage(ChatColor.RED + "Command error: " + e.getMessage());
@@ -701,8 +1055,10 @@ public final class SiegeCraft extends JavaPlugin implements Listener {
 			@Override
 			public List<String> onTabComplete(CommandSender sender, Command command, String label, String[] args) {
 				if (args.length == 1)
-					return Arrays.asList("<play_time>");
+					return arenaAndTemplateIds();
 				if (args.length == 2)
+					return Arrays.asList("<play_time>");
+				if (args.length == 3)
 					return Arrays.asList("<robot_delay>");
 
 				return null;
@@ -713,16 +1069,16 @@ public final class SiegeCraft extends JavaPlugin implements Listener {
 
 			@Override
 			public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
-				// 2 args => start with the custom settings
-				if (args.length < 2)
+				// 3 args => start with the custom settings
+				if (args.length < 3)
 					return false;
 
 				// check caller is player
 				checkAndCast(sender);
 
 				try {
-					startGame((int) parseInt(args[0]), (int) parseInt(args[1]));
-					sender.sendMessage(ChatColor.GREEN + "Game starting...");
+					SiegeArena arena = startGame(args[0], (int) parseInt(args[1]), (int) parseInt(args[2]));
+					sender.sendMessage(ChatColor.GREEN + "Game starting in arena " + arena.getId() + "...");
 					return true;
 				} catch (NumberFormatException e) {
 					sender.sendMessage(ChatColor.RED + "Command error: some args are not numbers");
@@ -743,6 +1099,8 @@ public final class SiegeCraft extends JavaPlugin implements Listener {
 			@Override
 			public List<String> onTabComplete(CommandSender sender, Command command, String label, String[] args) {
 				if (args.length == 1)
+					return arenaIds();
+				if (args.length == 2)
 					return Arrays.asList("<reason>");
 				return null;
 			}
@@ -752,22 +1110,114 @@ public final class SiegeCraft extends JavaPlugin implements Listener {
 
 			@Override
 			public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+				if (args.length < 1)
+					return false;
+
 				// check caller is player
 				checkAndCast(sender);
 
-				if (args.length != 0)
-					System.err.println("Game stopped by operator. " + String.join(" ", args));
+				try {
+					SiegeArena arena = getArena(args[0]);
+
+					if (args.length > 1)
+						System.err.println("Game stopped by operator in arena " + args[0] + ". "
+								+ String.join(" ", Arrays.copyOfRange(args, 1, args.length)));
+
+					// ask server to stop game, only a started game expires its time
+					arena.stop();
+					sender.sendMessage(ChatColor.GOLD + "Game stopped");
+					return true;
+				} catch (SiegeException e) {
+					sender.sendMessage(ChatColor.RED + "Command error: " + e.getMessage());
+					return true;
+				}
+			}
+		});
+
+		getCommand("queue").setTabCompleter(new TabCompleter() {
+
+			@Override
+			public List<String> onTabComplete(CommandSender sender, Command command, String label, String[] args) {
+				if (args.length == 1)
+					return Arrays.asList("join", "leave");
+				if (args.length == 2 && args[0].equalsIgnoreCase("join"))
+					return arenaAndTemplateIds();
+				return null;
+			}
+		});
+
+		getCommand("queue").setExecutor(new CommandExecutor() {
+
+			@Override
+			public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+				if (args.length < 1)
+					return false;
+
+				// check caller is a player
+				Player p = checkAndCast(sender);
 
-				// ask server to stop game
-				stop();
-				getListeners().forEach(e -> e.onTimeExpired(game.getWinning()));
-				sender.sendMessage(ChatColor.GOLD + "Game stopped");
-				return true;
+				try {
+					switch (args[0].toLowerCase()) {
+					case "join":
+						if (args.length < 2)
+							return false;
+						queue.join(p, args[1]);
+						sender.sendMessage(ChatColor.GOLD + "Joined the queue of " + args[1] + " ("
+								+ queue.size(args[1]) + " players)");
+						return true;
+					case "leave":
+						if (queue.leave(p))
+							sender.sendMessage(ChatColor.GOLD + "Left the queue");
+						else
+							sender.sendMessage(ChatColor.RED + "Command error: you are not in a queue");
+						return true;
+					default:
+						return false;
+					}
+				} catch (SiegeException e) {
+					sender.sendMessage(ChatColor.RED + "Command error: " + e.getMessage());
+					return true;
+				} catch (Exception e) {
+					sender.sendMessage(ChatColor.RED + "Internal error: please contact the plugin maker.");
+					e.printStackTrace();
+					return true;
+				}
 			}
 		});
 
 	}
 
+	// kits file is created with the built-in kit on first start
+	private void loadKits() {
+		kits.clear();
+		kits.put(DEFAULT_KIT, SiegeItems.KIT);
+
+		File file = new File(getDataFolder(), "kits.yml");
+		if (!file.exists()) {
+			YamlConfiguration config = new YamlConfiguration();
+			config.createSection("kits." + DEFAULT_KIT, SiegeItems.KIT.serialize());
+
+			try {
+				getDataFolder().mkdirs();
+				config.save(file);
+			} catch (IOException e) {
+				System.err.println("Could not save siegecraft kits. Error: " + e.getMessage());
+			}
+			return;
+		}
+
+		ConfigurationSection section = YamlConfiguration.loadConfiguration(file).getConfigurationSection("kits");
+		if (section == null)
+			return;
+
+		for (String name : section.getKeys(false))
+			try {
+				kits.put(name, SiegeKit.load(section.getConfigurationSection(name)));
+			} catch (SiegeException e) {
+				System.err.println("Could not load kit " + name + ". Error: " + e.getMessage());
+			}
+	}
+
 	/**
 	 * on disable plugin method DON'T CALL!!
 	 * 
@@ -778,274 +1228,214 @@ public final class SiegeCraft extends JavaPlugin implements Listener {
 	public void onDisable() {
 		checkThread();
 		HandlerList.unregisterAll((JavaPlugin) this);
+		scheduler.cancel();
+		effects.cancel();
+		idleUnloader.cancel();
+		queue.cancel();
+		snapshots.cancel();
+		if (settingsWatcher != null)
+			settingsWatcher.close();
 		instance = null;
 
 	}
 
-	@SuppressWarnings("unchecked")
-	private <V> Map<String, V> read(String f) throws IOException, ClassNotFoundException {
-		BukkitObjectInputStream in = new BukkitObjectInputStream(new FileInputStream(new File(getDataFolder(), f)));
-		Map<String, V> tmp = (Map<String, V>) in.readObject();
-		in.close();
-		return tmp;
-	}
-
-	private void write(Map<String, ?> serializedObj, String f) throws IOException {
-		File file = new File(getDataFolder(), f);
-		if (!file.exists())
-			file.createNewFile();
-
-		BukkitObjectOutputStream out = new BukkitObjectOutputStream(new FileOutputStream(file));
-		out.writeObject(serializedObj);
-		out.close();
-	}
-
 	@EventHandler
 	private void onItemPickupEvent(EntityPickupItemEvent e) {
-		if (game.getBlueTower() == null || game.getRedTower() == null)
+		if (getArenaAt(e.getItem().getLocation()) == null)
 			return;
 
-		// check if player picked up an emerald (tower powerups)
-		if (e.getItem().getItemStack().getType() == Material.EMERALD && e.getEntity() instanceof Player) {
-			if (blueTeam.contains(e.getEntity()))
-				game.getBlueTower().addPowerups(e.getItem().getItemStack().getAmount());
-			if (redTeam.contains(e.getEntity()))
-				game.getRedTower().addPowerups(e.getItem().getItemStack().getAmount());
-
-			// send a info message with the amount of powerups picked up
-			Player p = (Player) e.getEntity();
-			p.sendMessage(ChatColor.GREEN + "+" + e.getItem().getItemStack().getAmount()
-					+ (e.getItem().getItemStack().getAmount() > 1 ? " Powerups" : " Powerup"));
-
-			// remove the item from the inventory
-			e.getItem().remove();
-			e.setCancelled(true);
-		}
+		// powerups carry the id of their arena
+		String id = PowerupRegistry.arenaOf(e.getItem());
+		SiegeArena arena = id != null ? arenas.get(id) : null;
+		if (arena != null)
+			arena.onItemPickupEvent(e);
 	}
 
 	@EventHandler
 	private void onEntityTargetChangeEvent(EntityTargetEvent e) {
-		// cancel target change (only code level allowed)
-		if (e.getEntity() instanceof Wither)
-			e.setCancelled(true);
+		SiegeArena arena = getArenaAt(e.getEntity().getLocation());
+		if (arena != null)
+			arena.onEntityTargetChangeEvent(e);
 	}
 
 	@EventHandler
 	private void onRobotDamageEvent(EntityDamageEvent e) {
-		if (game.getBlueTower() == null || game.getRedTower() == null)
+		if (!(e.getEntity() instanceof Wither))
 			return;
 
-		// when robot takes damage cancel it and damage it "at game level"
-		if (e.getEntity() instanceof Wither) {
-			// find the robot associated at the damaged entity
-			Robot r = game.getBlueTower().getAllyRobots().get(e.getEntity().getUniqueId());
-			if (r == null)
-				r = game.getRedTower().getAllyRobots().get(e.getEntity().getUniqueId());
-
-			if (r == null)
-				return;
-
-			r.damage((int) e.getDamage());
-			e.setDamage(0);
-		}
+		SiegeArena arena = getArenaAt(e.getEntity().getLocation());
+		if (arena != null)
+			arena.onRobotDamageEvent(e);
 	}
 
 	@EventHandler
 	private void onWitherSkullHitEvent(ProjectileHitEvent e) {
-		if (game.getBlueTower() == null || game.getRedTower() == null)
-			return;
-
-		if (e.getEntity() instanceof WitherSkull) {
-			// damage the tower if in range
-			Wither w = (Wither) ((WitherSkull) e.getEntity()).getShooter();
-			Robot r = game.getBlueTower().getAllyRobots().get(w.getUniqueId());
-			if (r == null)
-				r = game.getRedTower().getAllyRobots().get(w.getUniqueId());
-
-			if (r == null)
-				return;
-
-			// check if wither skull exploded near tower
-			if (e.getEntity().getLocation().distance(game.getBlueTower().getTower().getLocation()) < 3)
-				game.getBlueTower().damage(r.getDamage());
-			if (e.getEntity().getLocation().distance(game.getRedTower().getTower().getLocation()) < 3)
-				game.getRedTower().damage(r.getDamage());
-
-			e.getEntity().getWorld().createExplosion(e.getEntity().getLocation(), 1, false, false);
-			e.setCancelled(true);
-
-		}
+		SiegeArena arena = getArenaAt(e.getEntity().getLocation());
+		if (arena != null)
+			arena.onWitherSkullHitEvent(e);
 	}
 
 	@EventHandler
 	private void onPlayerDamageEvent(EntityDamageEvent e) {
-		// if a player dies wait 5s and the respawn it
-		if (e.getEntity() instanceof Player) {
-			Player p = (Player) e.getEntity();
-
-			// if player could die cancel it
-			if (e.getFinalDamage() >= p.getHealth()) {
-				e.setCancelled(true);
-
-				// change gamemode to spectator
-				p.setHealth(20);
-				p.setGameMode(GameMode.SPECTATOR);
-				p.sendTitle(ChatColor.RED + "You are dead!", "", 1, 20, 1);
-
-				// wait 5s before respawn
-				new BukkitRunnable() {
-
-					int i = 5;
-
-					@Override
-					public void run() {
-						if (i == 0) {
-							// after 5s change his gamemode to survival and teleport at his own spawn
-							p.setGameMode(GameMode.SURVIVAL);
-							if (redTeam.contains(e.getEntity()))
-								e.getEntity().teleport(game.getRedSpawn());
-							if (blueTeam.contains(e.getEntity()))
-								e.getEntity().teleport(game.getBlueSpawn());
-
-							SiegeItems.setEquipment(p);
-
-							cancel();
-						}
+		if (!(e.getEntity() instanceof Player))
+			return;
 
-						p.sendTitle(ChatColor.GREEN + "Respawn in: " + ChatColor.WHITE + i-- + "s", "", 1, 20, 1);
+		// outside every arena nobody plays
+		SiegeArena arena = getArenaAt(e.getEntity().getLocation());
+		if (arena == null)
+			return;
 
-					}
-				}.runTaskTimer(this, 20, 20);
-			}
-		}
+		// players are handled by the arena where they play or where they are
+		SiegeArena own = getPlayerArena((Player) e.getEntity());
+		(own != null ? own : arena).onPlayerDamageEvent(e);
 	}
 
 	@EventHandler
 	private void onArrowHitEvent(ProjectileHitEvent e) {
-		// remove arrows and if it hit a non protected block delete it
-		if (e.getEntity() instanceof Arrow) {
-			if (e.getHitBlock() != null && !isProtected(e.getHitBlock()))
-				e.getHitBlock().setType(Material.AIR);
-			e.getEntity().remove();
-		}
+		SiegeArena arena = getArenaAt(e.getEntity().getLocation());
+		if (arena != null)
+			arena.onArrowHitEvent(e);
 	}
 
 	@EventHandler
 	private void onBlockExplodeEvent(BlockExplodeEvent e) {
-		if (isProtected(e.getBlock()))
-			e.setCancelled(true);
+		SiegeArena arena = getArenaAt(e.getBlock().getLocation());
+		if (arena != null)
+			arena.onBlockExplodeEvent(e);
 	}
 
 	@EventHandler
 	private void onTNTExplodeEvent(EntityExplodeEvent e) {
-		if (game.getBlueTower() == null || game.getRedTower() == null)
-			return;
-
-		// listen for tnt explode
-		if (e.getEntity() instanceof TNTPrimed) {
-			// damage the tower if in range
-			if (e.getEntity().getLocation().distance(game.getBlueTower().getTower().getLocation()) < 10)
-				game.getBlueTower().damage(50);
-			if (e.getEntity().getLocation().distance(game.getRedTower().getTower().getLocation()) < 10)
-				game.getRedTower().damage(50);
-
-			// destroy the blocks placed by players if in range
-			e.blockList().forEach(el -> {
-				if (!isProtected(el))
-					el.setType(Material.AIR);
-			});
-
-			e.getEntity().getWorld().createExplosion(e.getEntity().getLocation(), 1, false, false);
-			e.setCancelled(true);
-		}
-
+		SiegeArena arena = getArenaAt(e.getEntity().getLocation());
+		if (arena != null)
+			arena.onTNTExplodeEvent(e);
 	}
 
 	@EventHandler
 	private void onBlockPlaceEvent(BlockPlaceEvent event) {
-		// if it's tnt blow it else save it as block placed by player
-		if (event.getBlock().getType() == Material.TNT) {
-			event.getBlock().setType(Material.AIR);
-			TNTPrimed tnt = (TNTPrimed) event.getBlock().getWorld().spawnEntity(event.getBlock().getLocation(),
-					EntityType.PRIMED_TNT);
-			tnt.setFuseTicks(20);
-		} else
-			placedBlocks.add(new ImmutableLocation(event.getBlock().getLocation()));
+		SiegeArena arena = getArenaAt(event.getBlock().getLocation());
+		if (arena != null)
+			arena.onBlockPlaceEvent(event);
 	}
 
 	@EventHandler
 	private void onBlockBreakEvent(BlockBreakEvent event) {
-		// destroy the block only if the block was placed by a player
-		if (isProtected(event.getBlock()))
-			event.setCancelled(true);
-		else
-			placedBlocks.remove(new ImmutableLocation(event.getBlock().getLocation()));
+		SiegeArena arena = getArenaAt(event.getBlock().getLocation());
+		if (arena != null)
+			arena.onBlockBreakEvent(event);
+	}
 
+	@EventHandler
+	private void onPlayerQuitEvent(PlayerQuitEvent event) {
+		queue.leave(event.getPlayer());
 	}
 
 	@EventHandler
 	private void onWorldSaveEvent(WorldSaveEvent event) {
-		// save the location of tower, powerup area and spawnpoints
-		try {
-			getDataFolder().mkdir();
-			write(game.getRedTower().serialize(), "Red tower.sc");
-			write(game.getBlueTower().serialize(), "Blue tower.sc");
-
-			write(game.getRedSpawn().serialize(), "Red spawn.sc");
-			write(game.getBlueSpawn().serialize(), "Blue spawn.sc");
-
-			write(game.getPowerupSpawn().serialize(), "Powerup spawn.sc");
-			write(game.getSettings(), "Game settings.sc");
-		} catch (IOException e) {
-			System.err.println("Could not save siegecraft properties. Error: " + e.getMessage());
-		}
+		// save the location of tower, powerup area and spawnpoints of every arena
+		for (SiegeArena arena : arenas.values())
+			try {
+				arena.save();
+			} catch (IOException e) {
+				System.err.println(
+						"Could not save siegecraft properties of arena " + arena.getId() + ". Error: " + e.getMessage());
+			}
 	}
 
 	@EventHandler
 	private void onChatEvent(AsyncPlayerChatEvent event) {
-		if (blueTeam.contains(event.getPlayer()))
-			Bukkit.getOnlinePlayers().forEach(e -> e.sendMessage(ChatColor.BLUE + "[Blue] "
-					+ event.getPlayer().getName() + ": " + ChatColor.GOLD + event.getMessage()));
-		else if (redTeam.contains(event.getPlayer()))
-			Bukkit.getOnlinePlayers().forEach(e -> e.sendMessage(ChatColor.DARK_RED + "[Red] "
-					+ event.getPlayer().getName() + ": " + ChatColor.GOLD + event.getMessage()));
-		else
-			Bukkit.getOnlinePlayers().forEach(e -> e.sendMessage(ChatColor.DARK_PURPLE + "[Spectator] "
-					+ event.getPlayer().getName() + ": " + ChatColor.GOLD + event.getMessage()));
-
-		event.setCancelled(true);
+		// runs on the chat thread, only the published snapshot is read
+		chat.route(event);
+	}
+
+	// replace the snapshot read by the other threads
+	private void publishSnapshot() {
+		snapshot = GameSnapshot.of(getTimers().getTick(), arenas.values());
+	}
 
+	// swap the settings of an arena edited on disk, between two ticks
+	private void reloadSettings(String id, GameSettings settings) {
+		SiegeArena arena = arenas.get(id);
+		if (arena != null)
+			arena.reloadSettings(settings);
 	}
 
-	// check if block was placed by player or not
-	private boolean isProtected(Block block) {
-		return !placedBlocks.contains(new ImmutableLocation(block.getLocation()));
+	// tell the admins and the listeners of the loaded arenas the new quality
+	private void qualityChanged(EffectQuality quality) {
+		for (Player p : Bukkit.getOnlinePlayers())
+			if (p.hasPermission("siege.arena"))
+				p.sendMessage(ChatColor.GOLD + "[Siege] " + ChatColor.WHITE + "Effect quality is now " + quality);
+
+		for (SiegeArena arena : new ArrayList<>(arenas.values()))
+			if (arena.isLoaded())
+				arena.getListeners().forEach(l -> l.onQualityChange(quality));
 	}
 
-	private void createCircle(Location position, int radius, Material m) {
-		HashSet<Block> blocks = new HashSet<>();
+	// unload the worlds of the arenas not used for a while. Worlds shared with
+	// other arenas or with the server are never unloaded
+	private void unloadIdleArenas() {
+		World main = Bukkit.getWorlds().get(0);
+
+		for (SiegeArena arena : arenas.values()) {
+			if (!arena.isIdle(IDLE_TIMEOUT) || arena.getWorld().equals(main))
+				continue;
 
-		for (double i = 0.0; i < 360.0; i += 0.05) {
-			double angle = i * Math.PI / 180;
-			int x = (int) (position.getX() + radius * Math.cos(angle));
-			int z = (int) (position.getZ() + radius * Math.sin(angle));
-			Location tmp = new Location(position.getWorld(), x, position.getY(), z);
-			blocks.add(position.getWorld().getHighestBlockAt(tmp));
+			boolean shared = false;
+			for (SiegeArena other : arenas.values())
+				if (other != arena && arena.getWorld().equals(other.getWorld()))
+					shared = true;
+
+			if (!shared)
+				arena.unload();
 		}
+	}
 
-		Iterator<Block> iter = blocks.iterator();
+	// effects of the arenas
+	SiegeEffects getEffects() {
+		return effects;
+	}
 
-		new BukkitRunnable() {
+	// index of the arena regions
+	RegionIndex getRegions() {
+		return regions;
+	}
 
-			@Override
-			public void run() {
-				iter.next().setType(m);
+	// timers of the plugin tasks
+	TimingWheel getTimers() {
+		return scheduler.getTimers();
+	}
 
-				if (!iter.hasNext())
-					cancel();
-			}
-		}.runTaskTimer(this, 1, 1);
+	// arena by id or ready instance of a map template
+	private SiegeArena resolveArena(String name) {
+		SiegeArena arena = arenas.get(name);
+		return arena != null ? arena : getReadyArena(name);
+	}
 
+	// colored state of an arena for the arena list
+	private static String arenaState(SiegeArena arena) {
+		if (!arena.isLoaded())
+			return ChatColor.GRAY + "unloaded";
+		if (arena.isPlaying())
+			return ChatColor.RED + "playing";
+		if (arena.isResetting())
+			return ChatColor.YELLOW + "resetting";
+		if (arena.isReady())
+			return ChatColor.GREEN + "ready";
+		return ChatColor.GRAY + "not set";
+	}
+
+	// ids of the registered arenas for tab completion
+	private List<String> arenaIds() {
+		return new ArrayList<>(arenas.keySet());
+	}
+
+	// ids of the registered arenas and map templates for tab completion
+	private List<String> arenaAndTemplateIds() {
+		List<String> ids = arenaIds();
+		for (SiegeArena arena : arenas.values())
+			if (arena.getTemplate() != null && !ids.contains(arena.getTemplate()))
+				ids.add(arena.getTemplate());
+		return ids;
 	}
 
 	/**
@@ -1070,14 +1460,6 @@ public final class SiegeCraft extends JavaPlugin implements Listener {
 			throw new IllegalStateException("Cannot call this method outside bukkit thread");
 	}
 
-	private static void onPlayerAdd(Change<? extends Player> e) {
-		e.next();
-		if (e.wasAdded())
-			for (Player p : e.getAddedSubList())
-				if (p == null)
-					throw new SiegeException("Player not found");
-	}
-
 	private static Player checkAndCast(CommandSender sender) {
 		if (!(sender instanceof Player)) {
 			sender.sendMessage(ChatColor.RED + "Command error: this command can be called only by players");
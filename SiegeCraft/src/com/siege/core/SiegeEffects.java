@@ -0,0 +1,101 @@
+package com.siege.core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.bukkit.Color;
+import org.bukkit.Location;
+import org.bukkit.Particle;
+import org.bukkit.entity.EntityType;
+import org.bukkit.entity.Firework;
+import org.bukkit.entity.Item;
+import org.bukkit.entity.Player;
+
+import com.siege.data.constants.EffectQuality;
+
+import siege.util.BukkitRestricted;
+
+/**
+ * single task drawing the trails of the falling powerups of every arena. Trails
+ * are made of particles sent only to the players in range, with a max amount of
+ * particles per tick, and a firework explodes when the powerup lands. Trails
+ * are deferrable and skipped in the ticks without time left, frames get fewer
+ * particles and fireworks are dropped when the effect quality is lowered
+ * 
+ * @author Tommaso
+ *
+ */
+@BukkitRestricted
+final class SiegeEffects extends SiegeTask {
+
+	// max particles sent to the players in a tick
+	private static final int PARTICLE_BUDGET = 400;
+
+	// particles of a trail frame and max distance of the players seeing it
+	private static final int TRAIL_PARTICLES = 5;
+	private static final int REDUCED_PARTICLES = 2;
+	private static final double RANGE_SQUARED = 64 * 64;
+
+	private static final Particle.DustOptions DUST = new Particle.DustOptions(Color.GREEN, 5);
+
+	// falling powerups
+	private final List<Item> trails = new ArrayList<>();
+
+	// trail drawn first, rotated every tick so that every trail gets the budget
+	private int first;
+
+	SiegeEffects() {
+		super("powerup trails", true);
+	}
+
+	/**
+	 * draw the trail of a powerup until it lands
+	 * 
+	 * @param item the powerup
+	 */
+	void trail(Item item) {
+		trails.add(item);
+	}
+
+	@Override
+	public void run() {
+		// landed or removed powerups
+		for (int i = trails.size() - 1; i >= 0; i--) {
+			Item item = trails.get(i);
+			if (item.isDead() || item.isOnGround()) {
+				if (!item.isDead())
+					land(item.getLocation());
+				trails.remove(i);
+			}
+		}
+
+		if (trails.isEmpty())
+			return;
+
+		EffectQuality quality = SiegeCraft.getInstance().getEffectQuality();
+		int particles = quality.reaches(EffectQuality.FEWER_PARTICLES) ? REDUCED_PARTICLES : TRAIL_PARTICLES;
+		int budget = PARTICLE_BUDGET;
+		first = (first + 1) % trails.size();
+
+		for (int i = 0; i < trails.size() && budget > 0; i++) {
+			Item item = trails.get((first + i) % trails.size());
+			Location l = item.getLocation();
+
+			for (Player p : item.getWorld().getPlayers())
+				if (p.getLocation().distanceSquared(l) < RANGE_SQUARED && budget > 0) {
+					p.spawnParticle(Particle.REDSTONE, l, particles, 0, 0, 0, 1, DUST);
+					budget -= particles;
+				}
+		}
+	}
+
+	// single firework at the landing point. Without effects it makes the sound
+	// only and doesn't damage the players around
+	private static void land(Location l) {
+		if (SiegeCraft.getInstance().getEffectQuality().reaches(EffectQuality.NO_FIREWORKS))
+			return;
+
+		Firework f = (Firework) l.getWorld().spawnEntity(l, EntityType.FIREWORK);
+		f.detonate();
+	}
+}
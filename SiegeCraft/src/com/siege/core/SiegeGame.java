@@ -1,23 +1,20 @@
 package com.siege.core;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.function.Function;
+import java.util.function.Predicate;
 
 import org.bukkit.ChatColor;
-import org.bukkit.Color;
 import org.bukkit.Location;
-import org.bukkit.Particle;
-import org.bukkit.entity.EntityType;
-import org.bukkit.entity.Firework;
+import org.bukkit.block.Block;
 import org.bukkit.entity.Item;
-import org.bukkit.scheduler.BukkitRunnable;
 
 import com.siege.data.Robot;
 import com.siege.data.SiegeBoard;
 import com.siege.data.Tower;
 import com.siege.data.constants.SiegeColor;
-import com.siege.data.constants.SiegeItems;
 
 import javafx.beans.property.IntegerProperty;
 import javafx.beans.property.SimpleIntegerProperty;
@@ -38,12 +35,18 @@ final class SiegeGame {
 	// list of all listeners
 	private final ObservableList<SiegeGameListener> listeners = FXCollections.observableArrayList();
 
+	// functions run when the game ends or is aborted, after every listener
+	private final List<Runnable> endHooks = new ArrayList<>();
+
 	// game scoreboard
 	private final SiegeBoard scoreboard;
 
-	// remaining time and game settings
+	// arena share of the plugin scheduler
+	private final SiegeScheduler.Slice slice;
+
+	// remaining time and game settings, swapped whole on every change
 	private final IntegerProperty currTime;
-	private final Map<String, Number> settings;
+	private GameSettings settings = GameSettings.DEFAULT;
 
 	// tower of each team
 	private Tower blueTower;
@@ -54,18 +57,27 @@ final class SiegeGame {
 	private Location blueSpawn;
 	private Location powerupSpawn;
 
-	// timer and powerup drop animation
-	private BukkitRunnable timer;
-	private BukkitRunnable powerupSpawner;
+	// real time clock of the game and task checking it every tick
+	private GameClock clock;
+	private SiegeTask timer;
+
+	// ground where powerups land and check for player placed blocks
+	private PowerupLanding landing;
+	private final Predicate<Block> placed;
+
+	// powerups on the ground
+	private final PowerupRegistry powerups;
 
 	private boolean playing;
+	private boolean starting;
 
-	public SiegeGame(SiegeBoard board) {
+	public SiegeGame(SiegeBoard board, SiegeScheduler.Slice slice, Predicate<Block> placed, PowerupRegistry powerups) {
 		currTime = new SimpleIntegerProperty();
 
 		// set on time expired
 		onTimeChange(e -> {
-			listeners.forEach(l -> l.onTimeChange(e.intValue()));
+			long elapsed = clock != null ? clock.getElapsed() : 0;
+			listeners.forEach(l -> l.onTimeChange(e.intValue(), elapsed));
 			if (e <= 0) {
 				listeners.forEach(l -> l.onTimeExpired(getWinning()));
 				stop();
@@ -73,119 +85,106 @@ final class SiegeGame {
 			return null;
 		});
 
-		// init settings
-		settings = new HashMap<>();
-		settings.put("robotSpawnDelay", 180);
-		settings.put("powerupSpawnRadius", 50);
-		settings.put("powerupSpawnDelay", 30);
-		settings.put("maxPlayTime", 1200);
-
 		this.scoreboard = board;
+		this.slice = slice;
+		this.placed = placed;
+		this.powerups = powerups;
 	}
 
-	public void play() {
+	/**
+	 * lock the game for the countdown. The game is playing but its clock doesn't
+	 * run until {@link #play()}
+	 */
+	void prepare() {
 		if (playing)
 			throw new SiegeException("Game already running");
 
-		// init the game
-		scoreboard.enable();
-		currTime.set(settings.get("maxPlayTime").intValue());
+		currTime.set(settings.getMaxPlayTime());
 
-		powerupSpawner = new BukkitRunnable() {
-
-			@Override
-			public void run() {
-				int powerupSpawnRadius = settings.get("powerupSpawnRadius").intValue();
-
-				double r = powerupSpawnRadius * Math.sqrt(Math.random());
-				double theta = Math.random() * 2 * Math.PI;
-
-				double xadd = r * Math.cos(theta);
-				double zadd = r * Math.sin(theta);
-
-				// spawn a new powerup in a random position inside the powerup spawn area
-				powerupSpawn.add(xadd, 30, zadd);
-
-				Item item = powerupSpawn.getWorld().dropItemNaturally(powerupSpawn, SiegeItems.POWERUP());
-
-				// set cutom item information
-				item.setGlowing(true);
-				item.setCustomName(ChatColor.GREEN + "POWERUP");
-				item.setCustomNameVisible(true);
-
-				// create spawn aniamtion and sound
-				spawnFollowingFirework(item);
+		starting = true;
+		playing = true;
+	}
 
-				getListeners().forEach(e -> e.onPowerupSpawn(item));
+	/**
+	 * sample the ground of the powerup area once per game
+	 */
+	void sampleLanding() {
+		landing = new PowerupLanding(powerupSpawn, settings.getPowerupSpawnRadius(),
+				Arrays.asList(blueTower.getTower().getLocation(), redTower.getTower().getLocation()), placed);
+	}
 
-				powerupSpawn.add(-xadd, -30, -zadd);
-			}
-		};
+	/**
+	 * start the clock, the towers and the powerup spawner of a prepared game
+	 */
+	public void play() {
+		if (!starting)
+			throw new SiegeException("Game not prepared");
 
-		int powerupTickRate = settings.get("powerupSpawnDelay").intValue() * 20;
-		powerupSpawner.runTaskTimer(SiegeCraft.getInstance(), powerupTickRate, powerupTickRate);
+		starting = false;
 
-		timer = new BukkitRunnable() {
+		// real time clock, checked every tick
+		clock = new GameClock(settings.getMaxPlayTime());
+		GameClock.Period robots = clock.every(settings.getRobotSpawnDelay());
+		GameClock.Period drops = clock.every(settings.getPowerupSpawnDelay());
 
-			private int robotSpawnDelay = settings.get("robotSpawnDelay").intValue();
-			private int powerupSpawnDelay = settings.get("powerupSpawnDelay").intValue();
+		timer = new SiegeTask("game timer") {
 
 			@Override
 			public void run() {
+				// events missed while the server was late run now
+				while (drops.poll())
+					spawnPowerup();
 
-				// decrease timer by 1 secod every 20 ticks
-				currTime.set(currTime.get() - 1);
-
-				// update scoreboard time
-				scoreboard.setTime(
-						ChatColor.translateAlternateColorCodes('&', "&5Game ends: &a" + secondsToStr(currTime.get())));
-
-				// update scoreboard robot spawn delay
-				if (robotSpawnDelay == 0)
-					robotSpawnDelay = settings.get("robotSpawnDelay").intValue();
-				else
-					robotSpawnDelay--;
+				while (robots.poll())
+					spawnRobot();
 
-				// update scorebaord next robot
-				scoreboard.setRobotSpawnTime(ChatColor.translateAlternateColorCodes('&',
-						"&5Next Robot: &a" + secondsToStr(robotSpawnDelay)));
+				// time and scoreboard change once per second
+				int remaining = clock.getRemaining();
+				if (remaining == currTime.get())
+					return;
 
-				// update scoreboard next powerup
-				if (powerupSpawnDelay == 0)
-					powerupSpawnDelay = settings.get("powerupSpawnDelay").intValue();
-				else
-					powerupSpawnDelay--;
+				String time = ChatColor.translateAlternateColorCodes('&', "&5Game ends: &a" + secondsToStr(remaining));
+				slice.defer("time", () -> scoreboard.setTime(time));
 
-				scoreboard.setPowerupSpawnTime(ChatColor.translateAlternateColorCodes('&',
-						"&5Next Powerup: &a" + secondsToStr(powerupSpawnDelay)));
+				String robotTime = ChatColor.translateAlternateColorCodes('&',
+						"&5Next Robot: &a" + secondsToStr(robots.getRemaining()));
+				slice.defer("robot time", () -> scoreboard.setRobotSpawnTime(robotTime));
 
-				if (robotSpawnDelay == 0)
-					// spawn robot at fixed delay for the tower with most powerups
-					if (blueTower.getPowerups() > redTower.getPowerups()) {
-						int powerups = blueTower.getPowerups();
-						Robot r = blueTower.createRobot(redTower);
-						listeners.forEach(e -> e.onRobotSpawn(SiegeColor.BLUE, r, powerups));
-
-					} else if (blueTower.getPowerups() < redTower.getPowerups()) {
-						int powerups = redTower.getPowerups();
-						Robot r = redTower.createRobot(blueTower);
-						listeners.forEach(e -> e.onRobotSpawn(SiegeColor.RED, r, powerups));
-
-					} else
-						// on draw set all to null and level to -1
-						listeners.forEach(e -> e.onRobotSpawn(null, null, -1));
+				String powerupTime = ChatColor.translateAlternateColorCodes('&',
+						"&5Next Powerup: &a" + secondsToStr(drops.getRemaining()));
+				slice.defer("powerup time", () -> scoreboard.setPowerupSpawnTime(powerupTime));
 
+				currTime.set(remaining);
 			}
 		};
-		timer.runTaskTimer(SiegeCraft.getInstance(), 20, 20);
+		timer.runTimer(1, 1);
 
-		blueTower.start();
-		redTower.start();
+		blueTower.start(slice.getPhase());
+		redTower.start(slice.getPhase());
 
 		// run the listeners on game start
 		listeners.forEach(e -> e.onGameStart(blueTower, redTower));
+	}
 
-		playing = true;
+	/**
+	 * stop a game during its countdown
+	 */
+	void abort() {
+		landing = null;
+		starting = false;
+		playing = false;
+
+		endHooks.forEach(Runnable::run);
+	}
+
+	/**
+	 * run a function every time the game ends, whatever the reason: time expired,
+	 * tower destroyed, game stopped or aborted during the countdown
+	 * 
+	 * @param f the function to run
+	 */
+	void onGameEnd(Runnable f) {
+		endHooks.add(f);
 	}
 
 	/**
@@ -193,20 +192,54 @@ final class SiegeGame {
 	 */
 
 	private void stop() {
+		// a tower can die only once the game runs
+		if (!playing || starting)
+			return;
+
 		blueTower.stop();
 		redTower.stop();
 
-		powerupSpawner.cancel();
 		timer.cancel();
 
+		clock = null;
+		landing = null;
+		powerups.clear();
 		playing = false;
+
+		endHooks.forEach(Runnable::run);
 	}
 
 	/**
-	 * ask to expire the timer
+	 * check again where powerups can land after a block change
+	 * 
+	 * @param b the changed block
+	 */
+	void refreshLanding(Block b) {
+		if (landing != null)
+			landing.refresh(b);
+	}
+
+	/**
+	 * expire the timer now, ending the game as if the time ran out
 	 */
 	public void expireTimer() {
-		currTime.set(1);
+		if (clock == null)
+			return;
+
+		clock.expire();
+		currTime.set(0);
+	}
+
+	/**
+	 * forget towers, spawns and powerup area when the arena world is unloaded
+	 */
+	void clear() {
+		blueTower = null;
+		redTower = null;
+
+		blueSpawn = null;
+		redSpawn = null;
+		powerupSpawn = null;
 	}
 
 	/**
@@ -222,7 +255,7 @@ final class SiegeGame {
 		if (blueSpawn == null)
 			throw new SiegeException("Missing Blue spawn");
 
-		if (blueSpawn == null)
+		if (redSpawn == null)
 			throw new SiegeException("Missing Red spawn");
 
 		if (powerupSpawn == null)
@@ -328,15 +361,24 @@ final class SiegeGame {
 	}
 
 	/**
-	 * get settings map
+	 * get the game settings
 	 * 
-	 * @return
+	 * @return the settings in use
 	 */
-
-	public Map<String, Number> getSettings() {
+	GameSettings getSettings() {
 		return settings;
 	}
 
+	/**
+	 * replace the game settings. A running game keeps its length and delays until
+	 * it ends
+	 * 
+	 * @param settings the new settings
+	 */
+	void setSettings(GameSettings settings) {
+		this.settings = settings;
+	}
+
 	/**
 	 * get blue spawn
 	 * 
@@ -407,24 +449,56 @@ final class SiegeGame {
 		return playing;
 	}
 
-	private static void spawnFollowingFirework(Item item) {
-		new BukkitRunnable() {
+	/**
+	 * get the time left of the game
+	 * 
+	 * @return the seconds left
+	 */
+	int getTime() {
+		return currTime.get();
+	}
 
-			@Override
-			public void run() {
-				if (item.isOnGround() || item.isDead())
-					cancel();
+	/**
+	 * check if the game is counting down before the start
+	 * 
+	 * @return true if the game clock is not running yet
+	 */
+	boolean isStarting() {
+		return starting;
+	}
 
-				// create sound and trail for powerup
-				Firework f = (Firework) item.getWorld().spawnEntity(item.getLocation(), EntityType.FIREWORK);
-				f.detonate();
-				Particle.DustOptions dust = new Particle.DustOptions(Color.GREEN, 5);
-				item.getWorld().spawnParticle(Particle.REDSTONE, item.getLocation(), 5, 0, 0, 0, 1, dust);
+	// spawn a new powerup over a random ground block of the powerup spawn area
+	private void spawnPowerup() {
+		Location l = landing.random();
+		if (l == null)
+			return;
 
-			}
+		// short drop for the trail animation, merged powerups have no new item
+		Item item = powerups.spawn(l, settings.getPowerupDropHeight());
+		if (item == null)
+			return;
 
-		}.runTaskTimer(SiegeCraft.getInstance(), 1, 1);
+		// create spawn aniamtion and sound
+		SiegeCraft.getInstance().getEffects().trail(item);
+
+		getListeners().forEach(e -> e.onPowerupSpawn(item));
+	}
 
+	// spawn robot at fixed delay for the tower with most powerups
+	private void spawnRobot() {
+		if (blueTower.getPowerups() > redTower.getPowerups()) {
+			int powerups = blueTower.getPowerups();
+			Robot r = blueTower.createRobot(redTower);
+			listeners.forEach(e -> e.onRobotSpawn(SiegeColor.BLUE, r, powerups));
+
+		} else if (blueTower.getPowerups() < redTower.getPowerups()) {
+			int powerups = redTower.getPowerups();
+			Robot r = redTower.createRobot(blueTower);
+			listeners.forEach(e -> e.onRobotSpawn(SiegeColor.RED, r, powerups));
+
+		} else
+			// on draw set all to null and level to -1
+			listeners.forEach(e -> e.onRobotSpawn(null, null, -1));
 	}
 
 	private String secondsToStr(int totalSeconds) {
@@ -0,0 +1,304 @@
+package com.siege.core;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.ToIntFunction;
+
+import org.bukkit.ChatColor;
+import org.bukkit.entity.Player;
+
+import com.siege.data.constants.SiegeColor;
+
+import siege.exeptions.SiegeException;
+import siege.util.BukkitRestricted;
+
+/**
+ * matchmaking queue of the plugin. Players join the queue of a map template (or
+ * of a single arena) and every second the queued players are split in two teams
+ * balanced by rating and sent to a free instance of the map, where the game is
+ * started with the arena settings. A game starts when the queue holds two full
+ * teams or when the first player waited enough and there are at least two
+ * minimum teams
+ * 
+ * @author Tommaso
+ *
+ */
+@BukkitRestricted
+public final class SiegeQueue extends SiegeTask {
+
+	// milliseconds waited by the first player before starting with smaller teams
+	private static final long MAX_WAIT = 30 * 1000;
+
+	// milliseconds an arena which failed to start a game is skipped
+	private static final long FAILED_SKIP = 60 * 1000;
+
+	// queued players by map, in join order
+	private final Map<String, LinkedHashMap<UUID, Entry>> queues = new HashMap<>();
+
+	// map queued by every player
+	private final Map<UUID, String> joined = new HashMap<>();
+
+	// arenas which failed to start a queued game and when
+	private final Map<SiegeArena, Long> failed = new HashMap<>();
+
+	// rating used to balance the teams
+	private ToIntFunction<Player> rating = p -> 0;
+
+	SiegeQueue() {
+		super("queue");
+	}
+
+	/**
+	 * add a player to the queue of a map. A player already queued for another map
+	 * is moved to the new queue
+	 * 
+	 * @param p   the player
+	 * @param map a map template or an arena id
+	 * 
+	 * @throws SiegeException        if the map doesn't exist or the player already
+	 *                               plays in an arena
+	 * @throws IllegalStateException if the caller is not the bukkit thread
+	 */
+	public void join(Player p, String map) {
+		SiegeCraft.checkThread();
+
+		if (p == null || map == null)
+			throw new SiegeException("Null values are not allowed");
+
+		if (instances(map).isEmpty())
+			throw new SiegeException("Map " + map + " doesn't exist");
+
+		if (SiegeCraft.getInstance().getPlayerArena(p) != null)
+			throw new SiegeException("Player " + p.getName() + " already plays in an arena");
+
+		leave(p);
+
+		LinkedHashMap<UUID, Entry> queue = queues.computeIfAbsent(map, e -> new LinkedHashMap<>());
+		queue.put(p.getUniqueId(), new Entry(p));
+		joined.put(p.getUniqueId(), map);
+
+		// the first player starts loading an instance of the map
+		if (queue.size() == 1)
+			warmup(map);
+	}
+
+	/**
+	 * remove a player from its queue
+	 * 
+	 * @param p the player
+	 * @return true if the player was queued false otherwise
+	 * 
+	 * @throws IllegalStateException if the caller is not the bukkit thread
+	 */
+	public boolean leave(Player p) {
+		SiegeCraft.checkThread();
+
+		String map = joined.remove(p.getUniqueId());
+		if (map == null)
+			return false;
+
+		LinkedHashMap<UUID, Entry> queue = queues.get(map);
+		queue.remove(p.getUniqueId());
+		if (queue.isEmpty())
+			queues.remove(map);
+
+		return true;
+	}
+
+	/**
+	 * get the map queued by a player
+	 * 
+	 * @param p the player
+	 * @return the map or null if the player is not queued
+	 * 
+	 * @throws IllegalStateException if the caller is not the bukkit thread
+	 */
+	public String getQueue(Player p) {
+		SiegeCraft.checkThread();
+		return joined.get(p.getUniqueId());
+	}
+
+	/**
+	 * get the number of players in the queue of a map
+	 * 
+	 * @param map a map template or an arena id
+	 * @return the queued players
+	 * 
+	 * @throws IllegalStateException if the caller is not the bukkit thread
+	 */
+	public int size(String map) {
+		SiegeCraft.checkThread();
+
+		LinkedHashMap<UUID, Entry> queue = queues.get(map);
+		return queue == null ? 0 : queue.size();
+	}
+
+	/**
+	 * set the rating used to balance the teams. By default every player has the
+	 * same rating
+	 * 
+	 * @param rating function returning the rating of a player
+	 * 
+	 * @throws SiegeException        if rating is null
+	 * @throws IllegalStateException if the caller is not the bukkit thread
+	 */
+	public void setRating(ToIntFunction<Player> rating) {
+		SiegeCraft.checkThread();
+
+		if (rating == null)
+			throw new SiegeException("Null values are not allowed");
+
+		this.rating = rating;
+	}
+
+	@Override
+	public void run() {
+		long now = System.currentTimeMillis();
+
+		for (Iterator<Map.Entry<String, LinkedHashMap<UUID, Entry>>> it = queues.entrySet().iterator(); it
+				.hasNext();) {
+			Map.Entry<String, LinkedHashMap<UUID, Entry>> e = it.next();
+			LinkedHashMap<UUID, Entry> queue = e.getValue();
+
+			SiegeArena arena;
+			while (!queue.isEmpty() && (arena = freeArena(e.getKey())) != null) {
+				int min = 2 * arena.getSettings().getMinTeamSize();
+				int max = 2 * arena.getSettings().getMaxTeamSize();
+				long waited = now - queue.values().iterator().next().since;
+
+				if (queue.size() < max && (queue.size() < min || waited < MAX_WAIT))
+					break;
+
+				// first players in join order, an even number of them
+				int n = Math.min(max, queue.size()) & ~1;
+				List<Entry> group = new ArrayList<>(n);
+				for (Iterator<Entry> players = queue.values().iterator(); group.size() < n;) {
+					Entry p = players.next();
+					players.remove();
+					joined.remove(p.player.getUniqueId());
+					group.add(p);
+				}
+
+				// the players keep their place and the next instance is tried
+				if (!startMatch(arena, group)) {
+					requeue(e.getKey(), queue, group);
+					failed.put(arena, now);
+				}
+			}
+
+			if (queue.isEmpty())
+				it.remove();
+			else if (freeArena(e.getKey()) == null)
+				loadInstance(e.getKey());
+		}
+	}
+
+	// split the group in two teams with the same size and similar rating
+	private boolean startMatch(SiegeArena arena, List<Entry> entries) {
+		List<Player> group = new ArrayList<>();
+		entries.forEach(e -> group.add(e.player));
+		group.sort((a, b) -> Integer.compare(rating.applyAsInt(b), rating.applyAsInt(a)));
+
+		List<Player> blue = new ArrayList<>();
+		List<Player> red = new ArrayList<>();
+		long blueRating = 0;
+		long redRating = 0;
+
+		for (Player p : group)
+			if (red.size() == group.size() / 2 || (blue.size() < group.size() / 2 && blueRating <= redRating)) {
+				blue.add(p);
+				blueRating += rating.applyAsInt(p);
+			} else {
+				red.add(p);
+				redRating += rating.applyAsInt(p);
+			}
+
+		try {
+			arena.addPlayers(SiegeColor.BLUE, blue);
+			arena.addPlayers(SiegeColor.RED, red);
+			arena.startGame();
+		} catch (SiegeException e) {
+			arena.removePlayers(group);
+			System.err.println(
+					"Could not start a queued game in arena " + arena.getId() + ". Error: " + e.getMessage());
+			return false;
+		}
+
+		group.forEach(p -> p.sendMessage(
+				ChatColor.GOLD + "Match found in arena " + arena.getId() + ": team " + arena.teamOf(p)));
+		return true;
+	}
+
+	// put back players at the head of the queue with their join time
+	private void requeue(String map, LinkedHashMap<UUID, Entry> queue, List<Entry> entries) {
+		LinkedHashMap<UUID, Entry> tmp = new LinkedHashMap<>();
+		for (Entry e : entries)
+			if (e.player.isOnline()) {
+				tmp.put(e.player.getUniqueId(), e);
+				joined.put(e.player.getUniqueId(), map);
+			}
+
+		tmp.putAll(queue);
+		queue.clear();
+		queue.putAll(tmp);
+	}
+
+	// loaded instance of the map ready for a game and without players. Arenas
+	// which failed to start a game are skipped for a while
+	private SiegeArena freeArena(String map) {
+		long now = System.currentTimeMillis();
+		failed.values().removeIf(t -> now - t > FAILED_SKIP);
+
+		for (SiegeArena arena : instances(map))
+			if (arena.isLoaded() && !arena.hasPlayers() && arena.isReady() && !failed.containsKey(arena))
+				return arena;
+
+		return null;
+	}
+
+	// load the chunks of a free instance of the map or the world of an unloaded one
+	private void warmup(String map) {
+		for (SiegeArena arena : instances(map))
+			if (arena.isLoaded() && !arena.hasPlayers() && !arena.isPlaying() && !arena.isResetting()) {
+				arena.warmup();
+				return;
+			}
+
+		loadInstance(map);
+	}
+
+	// load the world of an instance of the map, if any is unloaded
+	private void loadInstance(String map) {
+		for (SiegeArena arena : instances(map))
+			if (!arena.isLoaded()) {
+				arena.warmup();
+				return;
+			}
+	}
+
+	// arenas with the map as id or template
+	private static List<SiegeArena> instances(String map) {
+		List<SiegeArena> instances = new ArrayList<>();
+		for (SiegeArena arena : SiegeCraft.getInstance().getArenas())
+			if (map.equals(arena.getId()) || map.equals(arena.getTemplate()))
+				instances.add(arena);
+
+		return instances;
+	}
+
+	// a queued player, resolved once on join
+	private static final class Entry {
+
+		private final Player player;
+		private final long since = System.currentTimeMillis();
+
+		private Entry(Player player) {
+			this.player = player;
+		}
+	}
+}
@@ -0,0 +1,244 @@
+package com.siege.core;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.bukkit.scheduler.BukkitRunnable;
+
+import com.siege.data.constants.EffectQuality;
+
+import siege.util.BukkitRestricted;
+
+/**
+ * plugin scheduler that advances the timing wheel of the plugin tasks, spreads
+ * the periodic work of the arenas on different tick offsets and runs the
+ * deferrable work (block placing, scoreboard lines, boss bars, trails,
+ * announcements) in the time left in the tick. Gameplay tasks always run first,
+ * then deferrable work runs until the tick budget, measured from the start of
+ * the tick, is over. The budget shrinks when the server is late, so deferrable
+ * work which doesn't fit is carried over to the next ticks. The tick times feed
+ * the governor of the effect quality
+ * 
+ * @author Tommaso
+ *
+ */
+@BukkitRestricted
+final class SiegeScheduler extends BukkitRunnable {
+
+	// number of tick offsets available to the arenas
+	static final int PHASES = 20;
+
+	// length of a tick when the server keeps up
+	private static final long TICK = 50_000_000;
+
+	// time from the start of the tick in which deferrable work can run
+	private static final long TICK_BUDGET = 4_000_000;
+
+	// max time spent on deferrable work of a single arena in a tick
+	private static final long ARENA_BUDGET = 1_000_000;
+
+	// arenas registered for each tick offset
+	private final int[] phaseLoad = new int[PHASES];
+	private final List<Slice> slices = new ArrayList<>();
+
+	// arena that drains first, rotated every tick to be fair with the last ones
+	private int first;
+
+	// timers of the whole plugin, run before the deferrable work
+	private final TimingWheel timers = new TimingWheel();
+
+	// start of the last tick and average time between two ticks
+	private long tickStart;
+	private long tickNanos = TICK;
+
+	private final QualityGovernor governor;
+
+	/**
+	 * create the scheduler
+	 * 
+	 * @param qualityChanged function receiving the new effect quality on every
+	 *                       change
+	 */
+	SiegeScheduler(Consumer<EffectQuality> qualityChanged) {
+		governor = new QualityGovernor(qualityChanged);
+	}
+
+	/**
+	 * register a new arena on the least used tick offset
+	 * 
+	 * @return the slice of the arena
+	 */
+	Slice register() {
+		int phase = 0;
+		for (int i = 1; i < PHASES; i++)
+			if (phaseLoad[i] < phaseLoad[phase])
+				phase = i;
+
+		phaseLoad[phase]++;
+		Slice s = new Slice(phase);
+		slices.add(s);
+		return s;
+	}
+
+	/**
+	 * unregister an arena. Deferrable work still queued is dropped
+	 * 
+	 * @param s the slice of the arena
+	 */
+	void unregister(Slice s) {
+		if (slices.remove(s))
+			phaseLoad[s.phase]--;
+		s.clear();
+	}
+
+	@Override
+	public void run() {
+		long start = System.nanoTime();
+		if (tickStart != 0) {
+			tickNanos += (start - tickStart - tickNanos) / 8;
+			governor.sample(start - tickStart);
+		}
+		tickStart = start;
+
+		// gameplay first, never delayed
+		timers.advance();
+
+		// then deferrable work in the time left, at least one job per tick so
+		// that nothing waits forever
+		long deadline = start + getBudget();
+		boolean ran = timers.runDeferred(deadline, false);
+
+		if (!slices.isEmpty()) {
+			first = (first + 1) % slices.size();
+			for (int i = 0; i < slices.size(); i++)
+				ran |= slices.get((first + i) % slices.size()).drain(deadline, !ran);
+		}
+
+		if (!ran)
+			timers.runDeferred(deadline, true);
+	}
+
+	/**
+	 * get the time from the start of the tick in which deferrable work can run.
+	 * Every millisecond the server is late is taken from the budget
+	 * 
+	 * @return the budget in nanoseconds, 0 if the server is too late
+	 */
+	long getBudget() {
+		return Math.max(0, TICK_BUDGET - Math.max(0, tickNanos - TICK));
+	}
+
+	/**
+	 * get the average time between two ticks
+	 * 
+	 * @return the tick time in nanoseconds, 50 ms when the server keeps up
+	 */
+	long getTickNanos() {
+		return tickNanos;
+	}
+
+	/**
+	 * get the governor of the effect quality fed by this scheduler
+	 * 
+	 * @return the quality governor
+	 */
+	QualityGovernor getGovernor() {
+		return governor;
+	}
+
+	/**
+	 * get the timing wheel advanced by this scheduler
+	 * 
+	 * @return the timers of the plugin
+	 */
+	TimingWheel getTimers() {
+		return timers;
+	}
+
+	/**
+	 * the share of the scheduler owned by a single arena
+	 * 
+	 * @author Tommaso
+	 *
+	 */
+	static final class Slice {
+
+		private final int phase;
+		private final ArrayDeque<Runnable> queue = new ArrayDeque<>();
+
+		// latest work of the keys queued, replaced by newer work with the same key
+		private final HashMap<Object, Runnable> latest = new HashMap<>();
+
+		private Slice(int phase) {
+			this.phase = phase;
+		}
+
+		/**
+		 * get the tick offset of the arena
+		 * 
+		 * @return a value between 0 and {@link SiegeScheduler#PHASES} - 1
+		 */
+		int getPhase() {
+			return phase;
+		}
+
+		/**
+		 * run periodic work with the arena tick offset
+		 * 
+		 * @param r      the work to run
+		 * @param period period in ticks
+		 */
+		void runTimer(SiegeTask r, int period) {
+			r.runTimer(period + phase % period, period);
+		}
+
+		/**
+		 * queue deferrable work. It will run in this tick or in the next ones if the
+		 * tick or the arena budget is over
+		 * 
+		 * @param r the work to run
+		 */
+		void defer(Runnable r) {
+			queue.add(r);
+		}
+
+		/**
+		 * queue deferrable work replacing the work with the same key still queued,
+		 * so that only the latest update of a scoreboard line or a title runs
+		 * 
+		 * @param key the key of the updated thing
+		 * @param r   the work to run
+		 */
+		void defer(Object key, Runnable r) {
+			if (latest.put(key, r) == null)
+				queue.add(() -> latest.remove(key).run());
+		}
+
+		/**
+		 * drop the queued work
+		 */
+		void clear() {
+			queue.clear();
+			latest.clear();
+		}
+
+		// run queued work until the tick or the arena budget is over
+		private boolean drain(long deadline, boolean force) {
+			long start = System.nanoTime();
+			long now = start;
+			boolean ran = false;
+
+			Runnable r;
+			while ((force && !ran || now < deadline && now - start < ARENA_BUDGET) && (r = queue.poll()) != null) {
+				r.run();
+				ran = true;
+				now = System.nanoTime();
+			}
+
+			return ran;
+		}
+	}
+}
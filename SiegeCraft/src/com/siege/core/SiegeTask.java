@@ -0,0 +1,177 @@
+package com.siege.core;
+
+import siege.util.BukkitRestricted;
+
+/**
+ * task run by the plugin timing wheel instead of the bukkit scheduler. Tasks
+ * are scheduled and cancelled in constant time and every task has a name used
+ * to count the runs of the tasks of the same kind. Deferrable tasks (cosmetic
+ * work) run only in the time left in the tick and are delayed when the server
+ * is late, the other tasks (gameplay) always run when due
+ * 
+ * @author Tommaso
+ *
+ */
+@BukkitRestricted
+public abstract class SiegeTask implements Runnable {
+
+	private final String name;
+	private final boolean deferrable;
+
+	// wheel slot links and position
+	SiegeTask prev;
+	SiegeTask next;
+	int level = -1;
+	int slot;
+
+	// next run tick and ticks between runs, 0 for a single run
+	long deadline;
+	long period;
+
+	// wheel running this task and if it is waiting for time left in the tick
+	TimingWheel wheel;
+	boolean pending;
+	private boolean scheduled;
+	private boolean cancelled;
+
+	/**
+	 * create a task
+	 * 
+	 * @param name the name of the task kind, shown in the timer counters
+	 */
+	protected SiegeTask(String name) {
+		this(name, false);
+	}
+
+	/**
+	 * create a task
+	 * 
+	 * @param name       the name of the task kind, shown in the timer counters
+	 * @param deferrable true if the task can be delayed when the server is late
+	 */
+	protected SiegeTask(String name, boolean deferrable) {
+		if (name == null)
+			throw new IllegalArgumentException("Task name must be not null");
+
+		this.name = name;
+		this.deferrable = deferrable;
+	}
+
+	/**
+	 * create a task running a function
+	 * 
+	 * @param name the name of the task kind, shown in the timer counters
+	 * @param r    the function to run
+	 * @return the new task, not scheduled
+	 */
+	public static SiegeTask of(String name, Runnable r) {
+		return new SiegeTask(name) {
+
+			@Override
+			public void run() {
+				r.run();
+			}
+		};
+	}
+
+	/**
+	 * create a deferrable task running a function. The function runs when due only
+	 * if the tick has time left, otherwise in the next ticks. Runs of a periodic
+	 * task missed in the meanwhile are merged
+	 * 
+	 * @param name the name of the task kind, shown in the timer counters
+	 * @param r    the function to run
+	 * @return the new task, not scheduled
+	 */
+	public static SiegeTask deferrable(String name, Runnable r) {
+		return new SiegeTask(name, true) {
+
+			@Override
+			public void run() {
+				r.run();
+			}
+		};
+	}
+
+	/**
+	 * run this task once after a delay. A cancelled task is not scheduled
+	 * 
+	 * @param delay delay in ticks
+	 * @return this task
+	 * 
+	 * @throws IllegalStateException if the task has been already scheduled or if
+	 *                               the caller is not the bukkit thread
+	 */
+	public final SiegeTask runLater(long delay) {
+		return runTimer(delay, 0);
+	}
+
+	/**
+	 * run this task periodically. A cancelled task is not scheduled
+	 * 
+	 * @param delay  delay in ticks before the first run
+	 * @param period ticks between two runs
+	 * @return this task
+	 * 
+	 * @throws IllegalStateException if the task has been already scheduled or if
+	 *                               the caller is not the bukkit thread
+	 */
+	public final SiegeTask runTimer(long delay, long period) {
+		SiegeCraft.checkThread();
+
+		if (scheduled)
+			throw new IllegalStateException("Task already scheduled");
+
+		// cancel() won't remove it from the wheel anymore
+		if (cancelled)
+			return this;
+
+		scheduled = true;
+		this.period = Math.max(0, period);
+		SiegeCraft.getInstance().getTimers().add(this, Math.max(1, delay));
+		return this;
+	}
+
+	/**
+	 * stop this task. A task which is not scheduled is only marked as cancelled
+	 * 
+	 * @throws IllegalStateException if the caller is not the bukkit thread
+	 */
+	public final void cancel() {
+		SiegeCraft.checkThread();
+
+		if (cancelled)
+			return;
+
+		cancelled = true;
+		if (wheel != null)
+			wheel.remove(this);
+	}
+
+	/**
+	 * check if this task has been cancelled
+	 * 
+	 * @return true if cancelled
+	 */
+	public final boolean isCancelled() {
+		return cancelled;
+	}
+
+	/**
+	 * check if this task can be delayed when the server is late
+	 * 
+	 * @return true if deferrable
+	 */
+	public final boolean isDeferrable() {
+		return deferrable;
+	}
+
+	/**
+	 * get the name of the task kind
+	 * 
+	 * @return the task name
+	 */
+	public final String getName() {
+		return name;
+	}
+}
@@ -0,0 +1,278 @@
+package com.siege.core;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+import siege.util.BukkitRestricted;
+
+/**
+ * hierarchical timing wheel running every task of the plugin. The wheel has 4
+ * levels of 64 slots: the first level holds the tasks of the next 64 ticks, the
+ * others the later tasks, moved down when their slot is reached. Tasks are
+ * linked in their slot, so adding and cancelling a task takes constant time. It
+ * is advanced once per tick by the plugin scheduler and counts the runs of
+ * every kind of task. Deferrable tasks due are queued and run by the scheduler
+ * in the time left in the tick
+ * 
+ * @author Tommaso
+ *
+ */
+@BukkitRestricted
+final class TimingWheel {
+
+	private static final int BITS = 6;
+	private static final int SLOTS = 1 << BITS;
+	private static final int MASK = SLOTS - 1;
+	private static final int LEVELS = 4;
+
+	// longer delays are cut, about 9 days
+	private static final long MAX_DELAY = (1L << BITS * LEVELS) - 1;
+
+	// first task of every slot of every level
+	private final SiegeTask[][] slots = new SiegeTask[LEVELS][SLOTS];
+
+	// deferrable tasks due, in order of deadline
+	private final ArrayDeque<SiegeTask> deferred = new ArrayDeque<>();
+
+	// counters by task name
+	private final TreeMap<String, Counter> counters = new TreeMap<>();
+
+	private long tick;
+
+	/**
+	 * schedule a task
+	 * 
+	 * @param t     the task
+	 * @param delay ticks before the first run, at least 1
+	 */
+	void add(SiegeTask t, long delay) {
+		t.wheel = this;
+		t.deadline = tick + Math.min(delay, MAX_DELAY);
+		counters.computeIfAbsent(t.getName(), e -> new Counter()).active++;
+		link(t);
+	}
+
+	/**
+	 * unschedule a task. A running task is not rescheduled after its run
+	 * 
+	 * @param t the task
+	 */
+	void remove(SiegeTask t) {
+		if (t.level < 0)
+			return;
+
+		unlink(t);
+		counters.get(t.getName()).active--;
+	}
+
+	/**
+	 * go to the next tick and run its tasks
+	 */
+	void advance() {
+		tick++;
+
+		// slots of the higher levels reached in this tick, from the highest
+		int top = 0;
+		while (top + 1 < LEVELS && (tick & (1L << BITS * (top + 1)) - 1) == 0)
+			top++;
+
+		for (int l = top; l > 0; l--) {
+			int s = (int) (tick >>> BITS * l) & MASK;
+
+			SiegeTask t;
+			while ((t = slots[l][s]) != null) {
+				unlink(t);
+				link(t);
+			}
+		}
+
+		int s = (int) tick & MASK;
+		SiegeTask t;
+		while ((t = slots[0][s]) != null) {
+			unlink(t);
+			fire(t);
+		}
+	}
+
+	/**
+	 * run the deferrable tasks due until a deadline. Tasks not run stay queued for
+	 * the next ticks
+	 * 
+	 * @param deadline the {@link System#nanoTime()} value after which no task is
+	 *                 started
+	 * @param force    true to run at least one task after the deadline
+	 * @return true if a task has been run
+	 */
+	boolean runDeferred(long deadline, boolean force) {
+		boolean ran = false;
+
+		SiegeTask t;
+		while ((force && !ran || System.nanoTime() < deadline) && (t = deferred.poll()) != null) {
+			t.pending = false;
+			if (t.isCancelled())
+				continue;
+
+			execute(t);
+			ran = true;
+		}
+
+		return ran;
+	}
+
+	/**
+	 * get the number of deferrable tasks waiting for time left in a tick
+	 * 
+	 * @return the queued tasks
+	 */
+	int getDeferred() {
+		return deferred.size();
+	}
+
+	/**
+	 * get the counters of every kind of task
+	 * 
+	 * @return unmodifiable map of the counters by task name
+	 */
+	Map<String, Counter> getCounters() {
+		return Collections.unmodifiableMap(counters);
+	}
+
+	/**
+	 * get the current tick
+	 * 
+	 * @return ticks since the wheel has been created
+	 */
+	long getTick() {
+		return tick;
+	}
+
+	// run a task due, or queue it if deferrable and not queued yet
+	private void fire(SiegeTask t) {
+		if (!t.isDeferrable())
+			execute(t);
+		else if (!t.pending) {
+			t.pending = true;
+			deferred.add(t);
+		}
+
+		if (t.period > 0 && !t.isCancelled()) {
+			t.deadline = tick + t.period;
+			link(t);
+		} else
+			counters.get(t.getName()).active--;
+	}
+
+	private void execute(SiegeTask t) {
+		Counter c = counters.get(t.getName());
+		long start = System.nanoTime();
+
+		try {
+			t.run();
+		} catch (RuntimeException e) {
+			System.err.println("Siege task " + t.getName() + " generated an exception: " + e.getMessage());
+			e.printStackTrace();
+		}
+
+		c.nanos += System.nanoTime() - start;
+		c.fires++;
+		if (c.lastTick != tick) {
+			c.lastTick = tick;
+			c.lastFires = 0;
+		}
+		c.lastFires++;
+	}
+
+	// put the task in the lowest level where its deadline shares the slots of
+	// the higher levels with the current tick
+	private void link(SiegeTask t) {
+		long diff = t.deadline ^ tick;
+
+		int level = 0;
+		while (level + 1 < LEVELS && diff >>> BITS * (level + 1) != 0)
+			level++;
+
+		t.level = level;
+		t.slot = (int) (t.deadline >>> BITS * level) & MASK;
+		t.prev = null;
+		t.next = slots[level][t.slot];
+		if (t.next != null)
+			t.next.prev = t;
+		slots[level][t.slot] = t;
+	}
+
+	private void unlink(SiegeTask t) {
+		if (t.prev != null)
+			t.prev.next = t.next;
+		else
+			slots[t.level][t.slot] = t.next;
+
+		if (t.next != null)
+			t.next.prev = t.prev;
+
+		t.prev = null;
+		t.next = null;
+		t.level = -1;
+	}
+
+	/**
+	 * runs of the tasks with the same name
+	 * 
+	 * @author Tommaso
+	 *
+	 */
+	static final class Counter {
+
+		private int active;
+		private long fires;
+		private long nanos;
+		private long lastTick;
+		private int lastFires;
+
+		/**
+		 * get the tasks of this kind scheduled now
+		 * 
+		 * @return the scheduled tasks
+		 */
+		int getActive() {
+			return active;
+		}
+
+		/**
+		 * get the runs since the wheel has been created
+		 * 
+		 * @return the number of runs
+		 */
+		long getFires() {
+			return fires;
+		}
+
+		/**
+		 * get the average run time
+		 * 
+		 * @return the average run time in nanoseconds
+		 */
+		long getAverageNanos() {
+			return fires == 0 ? 0 : nanos / fires;
+		}
+
+		/**
+		 * get the last tick with a run
+		 * 
+		 * @return the tick of the wheel
+		 */
+		long getLastTick() {
+			return lastTick;
+		}
+
+		/**
+		 * get the runs of the last tick with a run
+		 * 
+		 * @return the number of runs
+		 */
+		int getLastFires() {
+			return lastFires;
+		}
+	}
+}
@@ -0,0 +1,85 @@
+package com.siege.data;
+
+import java.util.HashMap;
+import java.util.function.LongSupplier;
+
+import org.bukkit.FluidCollisionMode;
+import org.bukkit.Location;
+import org.bukkit.util.Vector;
+
+import siege.util.BukkitRestricted;
+
+/**
+ * line of sight from a fixed point, cached by target block. The cache is
+ * dropped when the block epoch of the arena changes, that is when a block is
+ * placed, broken or destroyed, so targets standing still are ray traced once
+ * 
+ * @author Tommaso
+ *
+ */
+@BukkitRestricted
+final class LineOfSight {
+
+	private final Location from;
+
+	// visibility of the target blocks in the current epoch
+	private final HashMap<Long, Boolean> cache = new HashMap<>();
+	private LongSupplier epoch;
+	private long cachedEpoch;
+
+	/**
+	 * create the line of sight from a point
+	 * 
+	 * @param from the point looking at the targets
+	 */
+	LineOfSight(Location from) {
+		this.from = from.clone();
+	}
+
+	/**
+	 * set the block change counter invalidating the cache. Without it the cache is
+	 * dropped on every {@link #invalidate()}
+	 * 
+	 * @param epoch the counter or null
+	 */
+	void setEpoch(LongSupplier epoch) {
+		this.epoch = epoch;
+		cache.clear();
+	}
+
+	/**
+	 * drop the cache if blocks changed since the last check
+	 */
+	void invalidate() {
+		if (epoch == null) {
+			cache.clear();
+			return;
+		}
+
+		long current = epoch.getAsLong();
+		if (current != cachedEpoch) {
+			cachedEpoch = current;
+			cache.clear();
+		}
+	}
+
+	/**
+	 * check if no solid block is between the point and the target
+	 * 
+	 * @param target the target point
+	 * @return true if the target can be seen
+	 */
+	boolean canSee(Location target) {
+		long key = (long) (target.getBlockX() & 0x3ffffff) << 38 | (long) (target.getBlockZ() & 0x3ffffff) << 12
+				| (target.getBlockY() & 0xfff);
+
+		return cache.computeIfAbsent(key, e -> {
+			Vector direction = target.toVector().subtract(from.toVector());
+			double distance = direction.length();
+			if (distance == 0)
+				return true;
+
+			return from.getWorld().rayTraceBlocks(from, direction, distance, FluidCollisionMode.NEVER, true) == null;
+		});
+	}
+}
@@ -11,9 +11,10 @@ import org.bukkit.boss.BossBar;
 import org.bukkit.entity.EntityType;
 import org.bukkit.entity.Player;
 import org.bukkit.entity.Wither;
-import org.bukkit.scheduler.BukkitRunnable;
 
 import com.siege.core.SiegeCraft;
+import com.siege.core.SiegeTask;
+import com.siege.data.constants.EffectQuality;
 
 import javafx.beans.property.IntegerProperty;
 import javafx.beans.property.SimpleIntegerProperty;
@@ -29,8 +30,11 @@ public final class Robot {
 	private final BossBar robotBossBar;
 	private final int damage;
 
+	// boss bar update waiting for time left in the tick
+	private boolean barUpdate;
+
 	private final IntegerProperty health;
-	private final BukkitRunnable attackAI;
+	private final SiegeTask attackAI;
 
 	/**
 	 * build a full customizable robot
@@ -61,20 +65,32 @@ public final class Robot {
 				ChatColor.translateAlternateColorCodes('&', "&6&lRobot health: &a" + maxHealth + " &4❤"),
 				BarColor.PURPLE, BarStyle.SOLID, BarFlag.PLAY_BOSS_MUSIC);
 
-		Bukkit.getOnlinePlayers().forEach(e -> robotBossBar.addPlayer(e));
+		// only the players of the arena see the robot health
+		ally.getAllies().forEach(e -> robotBossBar.addPlayer(e));
+		ally.getEnemies().forEach(e -> robotBossBar.addPlayer(e));
 
 		onRobotDamage(() -> {
 			if (getHealth() <= 0)
-				Bukkit.getOnlinePlayers().forEach(e -> robotBossBar.removePlayer(e));
-			else {
-				robotBossBar.setTitle(
-						ChatColor.translateAlternateColorCodes('&', "&6&lRobot health: &a" + getHealth() + " &4❤"));
-				robotBossBar.setProgress((double) getHealth() / maxHealth);
+				robotBossBar.removeAll();
+			else if (!barUpdate) {
+				// several hits in a tick update the boss bar once, once per second
+				// when the effect quality is lowered
+				barUpdate = true;
+				boolean throttled = SiegeCraft.getInstance().getEffectQuality().reaches(EffectQuality.THROTTLED_BARS);
+				SiegeTask.deferrable("robot boss bar", () -> {
+					barUpdate = false;
+					if (getHealth() <= 0)
+						return;
+
+					robotBossBar.setTitle(
+							ChatColor.translateAlternateColorCodes('&', "&6&lRobot health: &a" + getHealth() + " &4❤"));
+					robotBossBar.setProgress((double) getHealth() / maxHealth);
+				}).runLater(throttled ? 20 : 1);
 			}
 		});
 
 		// until death focus tower, but if enemy players get closer attack it
-		attackAI = new BukkitRunnable() {
+		attackAI = new SiegeTask("robot attack") {
 
 			@Override
 			public void run() {
@@ -97,7 +113,8 @@ public final class Robot {
 			}
 		};
 
-		attackAI.runTaskTimer(SiegeCraft.getInstance(), 20, 20);
+		// run with the same tick offset of the owner tower
+		attackAI.runTimer(20 + ally.phase % 20, 20);
 	}
 
 	/**
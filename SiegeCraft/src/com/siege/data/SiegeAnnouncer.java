@@ -0,0 +1,185 @@
+package com.siege.data;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import org.bukkit.entity.Player;
+
+import com.siege.core.SiegeCraft;
+import com.siege.core.SiegeTask;
+import com.siege.data.constants.SiegeColor;
+
+import net.md_5.bungee.api.chat.BaseComponent;
+import net.md_5.bungee.api.chat.TextComponent;
+import siege.util.BukkitRestricted;
+
+/**
+ * announcements of a single arena. Messages and titles are sent only to the
+ * players of an audience of the arena, taken when the announcement is made, and
+ * the announcements made in the same tick are sent together on the next tick:
+ * the messages of every audience are serialized once and sent with a single
+ * packet per player, only the last title of an audience is shown
+ * 
+ * @author Tommaso
+ *
+ */
+@BukkitRestricted
+public final class SiegeAnnouncer {
+
+	/**
+	 * the players receiving an announcement
+	 * 
+	 * @author Tommaso
+	 *
+	 */
+	public enum Audience {
+		/**
+		 * players of both teams and spectators
+		 */
+		ARENA,
+		/**
+		 * online players of the blue team
+		 */
+		BLUE,
+		/**
+		 * online players of the red team
+		 */
+		RED,
+		/**
+		 * players watching the arena without playing
+		 */
+		SPECTATORS;
+
+		/**
+		 * get the audience of a team
+		 * 
+		 * @param team the team color
+		 * @return the audience of the team
+		 */
+		public static Audience of(SiegeColor team) {
+			return team == SiegeColor.BLUE ? BLUE : RED;
+		}
+	}
+
+	private final SiegeRoster roster;
+	private final Supplier<Collection<Player>> spectators;
+
+	// announcements waiting for the next tick
+	private final EnumMap<Audience, Batch> batches = new EnumMap<>(Audience.class);
+	private boolean scheduled;
+
+	/**
+	 * create the announcer of an arena
+	 * 
+	 * @param roster     the arena teams
+	 * @param spectators supplier of the players watching the arena
+	 */
+	public SiegeAnnouncer(SiegeRoster roster, Supplier<Collection<Player>> spectators) {
+		if (roster == null || spectators == null)
+			throw new IllegalArgumentException("Siege announcer roster and spectators must be not null");
+
+		this.roster = roster;
+		this.spectators = spectators;
+	}
+
+	/**
+	 * send a chat message to an audience
+	 * 
+	 * @param audience the players receiving the message
+	 * @param message  the message
+	 * 
+	 * @throws IllegalStateException if the caller is not the bukkit thread
+	 */
+	public void message(Audience audience, String message) {
+		SiegeCraft.checkThread();
+
+		batch(audience).messages.add(message);
+	}
+
+	/**
+	 * show a title to an audience
+	 * 
+	 * @param audience the players receiving the title
+	 * @param title    the title
+	 * @param subtitle the subtitle
+	 * 
+	 * @throws IllegalStateException if the caller is not the bukkit thread
+	 */
+	public void title(Audience audience, String title, String subtitle) {
+		SiegeCraft.checkThread();
+
+		batch(audience).title = new String[] { title, subtitle };
+	}
+
+	/**
+	 * get the players of an audience
+	 * 
+	 * @param audience the audience
+	 * @return a new list of online players
+	 * 
+	 * @throws IllegalStateException if the caller is not the bukkit thread
+	 */
+	public List<Player> getPlayers(Audience audience) {
+		SiegeCraft.checkThread();
+
+		switch (audience) {
+		case BLUE:
+			return new ArrayList<>(roster.getTeam(SiegeColor.BLUE));
+		case RED:
+			return new ArrayList<>(roster.getTeam(SiegeColor.RED));
+		case SPECTATORS:
+			return new ArrayList<>(spectators.get());
+		default:
+			List<Player> players = roster.getPlayers();
+			players.addAll(spectators.get());
+			return players;
+		}
+	}
+
+	// batch of the audience in this tick, with the players of the audience now
+	private Batch batch(Audience audience) {
+		if (!scheduled) {
+			scheduled = true;
+			SiegeTask.deferrable("announcements", this::flush).runLater(1);
+		}
+
+		Batch b = batches.computeIfAbsent(audience, e -> new Batch());
+		b.players.addAll(getPlayers(audience));
+		return b;
+	}
+
+	// send the announcements of the last tick
+	private void flush() {
+		scheduled = false;
+
+		for (Batch b : batches.values()) {
+			BaseComponent[] message = b.messages.isEmpty() ? null
+					: TextComponent.fromLegacyText(String.join("\n", b.messages));
+
+			for (Player p : b.players) {
+				if (!p.isOnline())
+					continue;
+
+				if (message != null)
+					p.spigot().sendMessage(message);
+				if (b.title != null)
+					p.sendTitle(b.title[0], b.title[1], 1, 20, 1);
+			}
+		}
+
+		batches.clear();
+	}
+
+	// announcements of an audience in a tick
+	private static final class Batch {
+
+		private final Set<Player> players = new LinkedHashSet<>();
+		private final List<String> messages = new ArrayList<>();
+		private String[] title;
+	}
+}
@@ -4,6 +4,7 @@ import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
+import org.bukkit.event.HandlerList;
 import org.bukkit.event.Listener;
 import org.bukkit.event.player.PlayerJoinEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
@@ -14,15 +15,14 @@ import org.bukkit.scoreboard.Scoreboard;
 import org.bukkit.scoreboard.Team;
 
 import com.siege.core.SiegeCraft;
+import com.siege.data.constants.SiegeColor;
 
-import javafx.collections.ObservableList;
 import siege.util.BukkitRestricted;
 
 @BukkitRestricted
 public final class SiegeBoard implements Listener {
 
-	private ObservableList<Player> redTeam;
-	private ObservableList<Player> blueTeam;
+	private final SiegeRoster roster;
 
 	private Scoreboard scoreboard;
 	private Objective siege;
@@ -32,12 +32,11 @@ public final class SiegeBoard implements Listener {
 
 	private boolean initialized;
 
-	public SiegeBoard(ObservableList<Player> redTeam, ObservableList<Player> blueTeam) {
-		if (redTeam == null || blueTeam == null)
-			throw new IllegalArgumentException("Siege board players' lists must be not null");
+	public SiegeBoard(SiegeRoster roster) {
+		if (roster == null)
+			throw new IllegalArgumentException("Siege board roster must be not null");
 
-		this.blueTeam = blueTeam;
-		this.redTeam = redTeam;
+		this.roster = roster;
 	}
 
 	/**
@@ -72,17 +71,17 @@ public final class SiegeBoard implements Listener {
 		siege = scoreboard.registerNewObjective("Time", "dummy", ChatColor.GOLD + "SiegeCraft");
 
 		// add players to the teams
-		blueTeam.forEach(e -> blue.addEntry(e.getName()));
-		redTeam.forEach(e -> red.addEntry(e.getName()));
+		roster.getTeam(SiegeColor.BLUE).forEach(e -> blue.addEntry(e.getName()));
+		roster.getTeam(SiegeColor.RED).forEach(e -> red.addEntry(e.getName()));
 
 		initialized = true;
 
 	}
 
 	/**
-	 * prepare the scoreboard with the basic informations. This method should be
-	 * called onGameStart() listener's method. (The SiegeBaselistener will make it
-	 * for you)
+	 * prepare the scoreboard with the basic informations. The arena calls it
+	 * during the game countdown and shows the scoreboard to every player with
+	 * {@link #show(Player)}
 	 * 
 	 * @throws IllegalStateException if the caller is not the bukkit thread
 	 */
@@ -100,16 +99,32 @@ public final class SiegeBoard implements Listener {
 		siege.getScore(ChatColor.DARK_RED + "Red Tower").setScore(2);
 	}
 
+	/**
+	 * show the scoreboard to a player. Every arena has its own scoreboard, it is
+	 * shown only to the arena players
+	 * 
+	 * @param p the player
+	 * 
+	 * @throws IllegalStateException if the caller is not the bukkit thread
+	 */
+	public void show(Player p) {
+		SiegeCraft.checkThread();
+
+		p.setScoreboard(scoreboard);
+	}
+
 	@EventHandler
 	private void onPlayerJoinEvent(PlayerJoinEvent e) {
-		// when player join the server set the scoreboard
-		e.getPlayer().setScoreboard(scoreboard);
+		// when a player of this arena join the server set the scoreboard
+		if (roster.contains(e.getPlayer()))
+			e.getPlayer().setScoreboard(scoreboard);
 	}
 
 	@EventHandler
 	private void onPlayerLeaveEvent(PlayerQuitEvent e) {
-		// when player leave the server remove the scoreboard
-		e.getPlayer().setScoreboard(Bukkit.getScoreboardManager().getNewScoreboard());
+		// when a player of this arena leave the server remove the scoreboard
+		if (roster.contains(e.getPlayer()))
+			e.getPlayer().setScoreboard(Bukkit.getScoreboardManager().getNewScoreboard());
 	}
 
 	private String prevTime = "";
@@ -244,4 +259,16 @@ public final class SiegeBoard implements Listener {
 		scoreboard.clearSlot(DisplaySlot.SIDEBAR);
 
 	}
+
+	/**
+	 * stop following the players joining and leaving the server. The scoreboard
+	 * must not be used anymore after this call
+	 * 
+	 * @throws IllegalStateException if the caller is not the bukkit thread
+	 */
+	public void dispose() {
+		SiegeCraft.checkThread();
+
+		HandlerList.unregisterAll(this);
+	}
 }
@@ -0,0 +1,193 @@
+package com.siege.data;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+
+import com.siege.core.SiegeCraft;
+import com.siege.core.SiegeTask;
+
+import siege.exeptions.SiegeException;
+import siege.util.BukkitRestricted;
+
+/**
+ * immutable equipment given to the players. Contents and armor are built and
+ * validated once, a player is equipped with a single call for the inventory and
+ * one for the armor. The inventory copies the items, so the kit items are never
+ * cloned and never reach the players
+ * 
+ * @author Tommaso
+ *
+ */
+@BukkitRestricted
+public final class SiegeKit {
+
+	// size of the player storage and armor slots
+	private static final int CONTENTS_SIZE = 36;
+	private static final int ARMOR_SIZE = 4;
+
+	// players equipped in a tick when a kit is given to a whole team
+	private static final int PLAYERS_PER_TICK = 8;
+
+	private final ItemStack[] contents;
+	private final ItemStack[] armor;
+
+	private SiegeKit(ItemStack[] contents, ItemStack[] armor) {
+		this.contents = contents;
+		this.armor = armor;
+	}
+
+	/**
+	 * build a kit
+	 * 
+	 * @param contents the items of the player storage by slot, null for an empty
+	 *                 slot
+	 * @param armor    boots, leggings, chestplate and helmet, null for an empty
+	 *                 slot
+	 * @return the new kit
+	 * 
+	 * @throws SiegeException if a list is too long or an item is not valid
+	 */
+	public static SiegeKit of(List<ItemStack> contents, List<ItemStack> armor) {
+		if (contents == null || armor == null)
+			throw new SiegeException("Kit contents and armor must be not null");
+		if (contents.size() > CONTENTS_SIZE)
+			throw new SiegeException("Kit contents must be at most " + CONTENTS_SIZE + " items");
+		if (armor.size() > ARMOR_SIZE)
+			throw new SiegeException("Kit armor must be at most " + ARMOR_SIZE + " items");
+
+		return new SiegeKit(copy(contents, CONTENTS_SIZE), copy(armor, ARMOR_SIZE));
+	}
+
+	/**
+	 * build a kit from a configuration section with the lists "contents" and
+	 * "armor"
+	 * 
+	 * @param section the kit section
+	 * @return the new kit
+	 * 
+	 * @throws SiegeException if the section is not a valid kit
+	 */
+	public static SiegeKit load(ConfigurationSection section) {
+		if (section == null)
+			throw new SiegeException("Kit must be a section");
+
+		return of(items(section.getList("contents", Collections.emptyList())),
+				items(section.getList("armor", Collections.emptyList())));
+	}
+
+	/**
+	 * serialize this kit for a configuration file
+	 * 
+	 * @return the lists of contents and armor items
+	 */
+	public Map<String, Object> serialize() {
+		LinkedHashMap<String, Object> tmp = new LinkedHashMap<>();
+		tmp.put("contents", trim(contents));
+		tmp.put("armor", trim(armor));
+		return tmp;
+	}
+
+	/**
+	 * replace the inventory of a player with this kit
+	 * 
+	 * @param p the player
+	 * 
+	 * @throws IllegalStateException if the caller is not the bukkit thread
+	 */
+	public void apply(Player p) {
+		SiegeCraft.checkThread();
+
+		// contents shorter than the inventory clear the armor and offhand too
+		p.getInventory().setContents(contents);
+		p.getInventory().setArmorContents(armor);
+	}
+
+	/**
+	 * replace the inventory of many players with this kit. Few players are
+	 * equipped now, the others some at a time in the next ticks
+	 * 
+	 * @param players the players
+	 * 
+	 * @throws IllegalStateException if the caller is not the bukkit thread
+	 */
+	public void apply(Collection<? extends Player> players) {
+		SiegeCraft.checkThread();
+
+		ArrayDeque<Player> waiting = new ArrayDeque<>(players);
+		if (equip(waiting))
+			return;
+
+		new SiegeTask("kit") {
+
+			@Override
+			public void run() {
+				if (equip(waiting))
+					cancel();
+			}
+		}.runTimer(1, 1);
+	}
+
+	// equip the players of a tick, true if nobody is left
+	private boolean equip(ArrayDeque<Player> waiting) {
+		for (int i = 0; i < PLAYERS_PER_TICK && !waiting.isEmpty(); i++) {
+			Player p = waiting.poll();
+			if (p.isOnline())
+				apply(p);
+		}
+
+		return waiting.isEmpty();
+	}
+
+	private static ItemStack[] copy(List<ItemStack> items, int size) {
+		ItemStack[] tmp = new ItemStack[size];
+
+		for (int i = 0; i < items.size(); i++) {
+			ItemStack item = items.get(i);
+			if (item == null || item.getType().isAir())
+				continue;
+
+			if (!item.getType().isItem())
+				throw new SiegeException(item.getType() + " is not an item");
+			if (item.getAmount() < 1 || item.getAmount() > item.getMaxStackSize())
+				throw new SiegeException("Invalid amount of " + item.getType() + ": " + item.getAmount());
+
+			tmp[i] = item.clone();
+		}
+
+		return tmp;
+	}
+
+	private static List<ItemStack> items(List<?> list) {
+		ArrayList<ItemStack> tmp = new ArrayList<>();
+
+		for (Object o : list) {
+			if (o != null && !(o instanceof ItemStack))
+				throw new SiegeException("Kit entry " + o + " is not an item");
+			tmp.add((ItemStack) o);
+		}
+
+		return tmp;
+	}
+
+	// items up to the last non empty slot
+	private static List<ItemStack> trim(ItemStack[] items) {
+		int size = items.length;
+		while (size > 0 && items[size - 1] == null)
+			size--;
+
+		ArrayList<ItemStack> tmp = new ArrayList<>();
+		for (ItemStack item : Arrays.copyOf(items, size))
+			tmp.add(item == null ? null : item.clone());
+		return tmp;
+	}
+}
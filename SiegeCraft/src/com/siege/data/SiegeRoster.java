@@ -0,0 +1,264 @@
+package com.siege.data;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.UUID;
+
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+
+import com.siege.core.SiegeCraft;
+import com.siege.data.constants.SiegeColor;
+
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import siege.exeptions.SiegeException;
+import siege.util.BukkitRestricted;
+
+/**
+ * team members of an arena keyed by player uuid. Membership checks are constant
+ * time and the roster keeps only weak handles of the players: the handle is
+ * released when the player quits and restored when the player joins again. The
+ * observable team lists given to towers and listeners are derived from the
+ * roster and contain the online members only
+ * 
+ * @author Tommaso
+ *
+ */
+@BukkitRestricted
+public final class SiegeRoster implements Listener {
+
+	// team tags
+	private static final byte BLUE = 0;
+	private static final byte RED = 1;
+
+	private final HashMap<UUID, Member> members = new HashMap<>();
+
+	// online members of every team
+	private final ObservableList<Player> blueTeam = FXCollections.observableArrayList();
+	private final ObservableList<Player> redTeam = FXCollections.observableArrayList();
+
+	private final ObservableList<Player> blueView = FXCollections.unmodifiableObservableList(blueTeam);
+	private final ObservableList<Player> redView = FXCollections.unmodifiableObservableList(redTeam);
+
+	public SiegeRoster() {
+		Bukkit.getPluginManager().registerEvents(this, SiegeCraft.getInstance());
+	}
+
+	/**
+	 * get the unmodifiable list of the online players of a team
+	 * 
+	 * @param team the team color
+	 * @return an unmodifiable observable list of players
+	 */
+	public ObservableList<Player> getTeam(SiegeColor team) {
+		return team == SiegeColor.BLUE ? blueView : redView;
+	}
+
+	/**
+	 * get the team of a player
+	 * 
+	 * @param p the player
+	 * @return the team color or null if the player is not a member
+	 */
+	public SiegeColor teamOf(Player p) {
+		return p == null ? null : teamOf(p.getUniqueId());
+	}
+
+	/**
+	 * get the team of a player
+	 * 
+	 * @param id the player uuid
+	 * @return the team color or null if the player is not a member
+	 */
+	public SiegeColor teamOf(UUID id) {
+		Member m = members.get(id);
+		if (m == null)
+			return null;
+
+		return m.team == BLUE ? SiegeColor.BLUE : SiegeColor.RED;
+	}
+
+	/**
+	 * check if a player is a member of a team, online or not
+	 * 
+	 * @param p the player
+	 * @return true if the player is a member false otherwise
+	 */
+	public boolean contains(Player p) {
+		return p != null && members.containsKey(p.getUniqueId());
+	}
+
+	/**
+	 * get an online member by uuid
+	 * 
+	 * @param id the player uuid
+	 * @return the player or null if the player is offline or not a member
+	 */
+	public Player getPlayer(UUID id) {
+		Member m = members.get(id);
+		return m == null ? null : m.player.get();
+	}
+
+	/**
+	 * check if the teams are empty
+	 * 
+	 * @return true if no player is in a team
+	 */
+	public boolean isEmpty() {
+		return members.isEmpty();
+	}
+
+	/**
+	 * get the online players of both teams
+	 * 
+	 * @return a new list of players
+	 */
+	public List<Player> getPlayers() {
+		List<Player> players = new ArrayList<>(blueTeam);
+		players.addAll(redTeam);
+		return players;
+	}
+
+	/**
+	 * add players to a team. No player is added if one of them is null or already
+	 * a member
+	 * 
+	 * @param team    the team color
+	 * @param players the players
+	 * 
+	 * @throws SiegeException        if a player is null or already in a team
+	 * @throws IllegalStateException if the caller is not the bukkit thread
+	 */
+	public void add(SiegeColor team, Collection<Player> players) {
+		SiegeCraft.checkThread();
+
+		HashSet<UUID> added = new HashSet<>();
+		for (Player p : players) {
+			if (p == null)
+				throw new SiegeException("Player not found");
+			if (members.containsKey(p.getUniqueId()) || !added.add(p.getUniqueId()))
+				throw new SiegeException("Player already in a team");
+		}
+
+		byte tag = team == SiegeColor.BLUE ? BLUE : RED;
+		for (Player p : players)
+			members.put(p.getUniqueId(), new Member(tag, p));
+
+		// a single change for the whole batch
+		list(tag).addAll(players);
+	}
+
+	/**
+	 * remove a player from its team
+	 * 
+	 * @param p the player
+	 * @return the team from which the player was removed or null if the player was
+	 *         not a member
+	 * 
+	 * @throws IllegalStateException if the caller is not the bukkit thread
+	 */
+	public SiegeColor remove(Player p) {
+		SiegeCraft.checkThread();
+
+		SiegeColor team = teamOf(p);
+		if (team == null)
+			return null;
+
+		Member m = members.remove(p.getUniqueId());
+		list(m.team).removeIf(e -> e.getUniqueId().equals(p.getUniqueId()));
+		return team;
+	}
+
+	/**
+	 * remove players from their team
+	 * 
+	 * @param players the players
+	 * 
+	 * @throws IllegalStateException if the caller is not the bukkit thread
+	 */
+	public void removeAll(Collection<Player> players) {
+		SiegeCraft.checkThread();
+
+		HashSet<UUID> removed = new HashSet<>();
+		for (Player p : players)
+			if (p != null && members.remove(p.getUniqueId()) != null)
+				removed.add(p.getUniqueId());
+
+		blueTeam.removeIf(e -> removed.contains(e.getUniqueId()));
+		redTeam.removeIf(e -> removed.contains(e.getUniqueId()));
+	}
+
+	/**
+	 * remove every player from the teams
+	 * 
+	 * @throws IllegalStateException if the caller is not the bukkit thread
+	 */
+	public void clear() {
+		SiegeCraft.checkThread();
+
+		members.clear();
+		blueTeam.clear();
+		redTeam.clear();
+	}
+
+	/**
+	 * stop following the players joining and leaving the server. The roster must
+	 * not be used anymore after this call
+	 * 
+	 * @throws IllegalStateException if the caller is not the bukkit thread
+	 */
+	public void dispose() {
+		SiegeCraft.checkThread();
+
+		HandlerList.unregisterAll(this);
+	}
+
+	// a reconnected player is a new instance, restore the handle
+	@EventHandler(priority = EventPriority.LOWEST)
+	private void onPlayerJoinEvent(PlayerJoinEvent e) {
+		Member m = members.get(e.getPlayer().getUniqueId());
+		if (m == null)
+			return;
+
+		m.player = new WeakReference<>(e.getPlayer());
+		list(m.team).add(e.getPlayer());
+	}
+
+	// release the handle of a player leaving the server
+	@EventHandler(priority = EventPriority.MONITOR)
+	private void onPlayerQuitEvent(PlayerQuitEvent e) {
+		Member m = members.get(e.getPlayer().getUniqueId());
+		if (m == null)
+			return;
+
+		m.player.clear();
+		list(m.team).remove(e.getPlayer());
+	}
+
+	private ObservableList<Player> list(byte team) {
+		return team == BLUE ? blueTeam : redTeam;
+	}
+
+	// a team member with its team tag and a weak handle of the player
+	private static final class Member {
+
+		private final byte team;
+		private WeakReference<Player> player;
+
+		private Member(byte team, Player player) {
+			this.team = team;
+			this.player = new WeakReference<>(player);
+		}
+	}
+}
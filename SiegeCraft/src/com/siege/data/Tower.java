@@ -2,10 +2,14 @@ package com.siege.data;
 
 import java.io.File;
 import java.io.FileInputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import java.util.function.Function;
+import java.util.function.LongSupplier;
 
 import org.bukkit.GameMode;
 import org.bukkit.Location;
@@ -15,11 +19,11 @@ import org.bukkit.entity.Arrow;
 import org.bukkit.entity.Entity;
 import org.bukkit.entity.EntityType;
 import org.bukkit.entity.Player;
-import org.bukkit.scheduler.BukkitRunnable;
-import org.bukkit.util.BoundingBox;
 import org.bukkit.util.io.BukkitObjectInputStream;
 
 import com.siege.core.SiegeCraft;
+import com.siege.core.SiegeTask;
+import com.siege.data.constants.EffectQuality;
 
 import javafx.beans.property.IntegerProperty;
 import javafx.beans.property.SimpleIntegerProperty;
@@ -54,7 +58,13 @@ public final class Tower {
 
 	private final IntegerProperty powerups;
 
-	private BukkitRunnable shootAI;
+	private SiegeTask shootAI;
+
+	// block changes counter of the arena, invalidates the line of sight
+	private LongSupplier blockEpoch;
+
+	// tick offset of the arena, shared with the robots of this tower
+	int phase;
 
 	/**
 	 * create full customizable tower
@@ -118,16 +128,34 @@ public final class Tower {
 	 *                               caller is not the bukkit thread
 	 */
 	public void start() {
+		start(0);
+	}
+
+	/**
+	 * enable tower running its AI with a tick offset. Towers of different arenas
+	 * should use different offsets to spread their work on different ticks
+	 * 
+	 * @param phase tick offset of the tower and of its robots
+	 * 
+	 * @throws IllegalStateException if tower has been already enabled or if the
+	 *                               caller is not the bukkit thread
+	 */
+	public void start(int phase) {
 		SiegeCraft.checkThread();
 		if (playing)
 			throw new IllegalStateException("Instance already running");
 
+		this.phase = phase;
+
 		currHealth.set(maxHealth);
 
 		Location towerFace = tower.getLocation().clone();
 		towerFace.add(0, 3, 0);
 
-		shootAI = new BukkitRunnable() {
+		LineOfSight sight = new LineOfSight(towerFace);
+		sight.setEpoch(blockEpoch);
+
+		shootAI = new SiegeTask("tower shoot") {
 
 			@Override
 			public void run() {
@@ -136,31 +164,35 @@ public final class Tower {
 					cancel();
 
 				// check if some one is in the turret range
-				Entity target = null;
-				double min = Double.MAX_VALUE;
-				double curr = 0;
+				List<Entity> targets = new ArrayList<>();
 
-				// find the nearest target
 				for (Player p : enemies)
-					if ((curr = towerFace.distance(p.getLocation())) < radius && (p.getGameMode() == GameMode.SURVIVAL))
-						if (curr < min) {
-							min = curr;
-							target = p;
-						}
+					if (towerFace.distanceSquared(p.getLocation()) < radius * radius
+							&& (p.getGameMode() == GameMode.SURVIVAL))
+						targets.add(p);
 
 				for (Robot r : enemyRobots.values())
-					if ((curr = towerFace.distance(r.getRobot().getLocation())) < radius)
-						if (curr < min) {
-							min = curr;
-							target = r.getRobot();
-						}
+					if (towerFace.distanceSquared(r.getRobot().getLocation()) < radius * radius)
+						targets.add(r.getRobot());
+
+				// find the nearest target not covered by blocks
+				targets.sort(Comparator.comparingDouble(e -> towerFace.distanceSquared(e.getLocation())));
+				sight.invalidate();
+
+				Entity target = null;
+				for (Entity e : targets)
+					if (sight.canSee(aim(e))) {
+						target = e;
+						break;
+					}
 
 				// take the nearest target and shoot him
 				if (target != null) {
 					Arrow arrow = tower.getWorld().spawnArrow(towerFace,
-							target.getLocation().toVector().subtract(towerFace.toVector()), 6, 1);
+							aim(target).toVector().subtract(towerFace.toVector()), 6, 1);
 					arrow.setDamage(damage);
-					arrow.setFireTicks(10);
+					if (!SiegeCraft.getInstance().getEffectQuality().reaches(EffectQuality.FEWER_PARTICLES))
+						arrow.setFireTicks(10);
 					arrow.setKnockbackStrength(0);
 					arrow.setGravity(false);
 
@@ -170,12 +202,31 @@ public final class Tower {
 		};
 
 		// check peridiocally for enemy in the tower range
-		shootAI.runTaskTimer(SiegeCraft.getInstance(), 10, 10);
+		shootAI.runTimer(10 + phase % 10, 10);
 
 		playing = true;
 
 	}
 
+	/**
+	 * set the counter of the block changes in the arena. Line of sight checks are
+	 * cached until it changes, without it they are cached for a single shot. It
+	 * must be set before {@link #start(int)}
+	 * 
+	 * @param epoch the counter, incremented on every block change
+	 * 
+	 * @throws IllegalStateException if the caller is not the bukkit thread
+	 */
+	public void setBlockEpoch(LongSupplier epoch) {
+		SiegeCraft.checkThread();
+		this.blockEpoch = epoch;
+	}
+
+	// point of a target aimed by the tower
+	private static Location aim(Entity e) {
+		return e instanceof Player ? ((Player) e).getEyeLocation() : e.getLocation().add(0, 1, 0);
+	}
+
 	/**
 	 * disable tower
 	 * 
@@ -355,6 +406,18 @@ public final class Tower {
 		return currHealth.get() <= 0;
 	}
 
+	/**
+	 * get the radius of the tower damage area
+	 * 
+	 * @return the tower radius
+	 * 
+	 * @throws IllegalStateException if the caller is not the bukkit thread
+	 */
+	public int getRadius() {
+		SiegeCraft.checkThread();
+		return radius;
+	}
+
 	/**
 	 * get the entity associated at this tower. Note: don't use the armour stand
 	 * properties. Changes on armour stand won't do any change to the tower and they
@@ -458,7 +521,9 @@ public final class Tower {
 			in.close();
 
 			Location loc = Location.deserialize(pos);
-			loc.getWorld().getNearbyEntities(new BoundingBox(1, 1, 1, 1, 1, 1)).forEach(e -> e.remove());
+
+			// remove the armor stand saved with the world (or copied with it)
+			loc.getWorld().getNearbyEntities(loc, 0.5, 1.5, 0.5, e -> e instanceof ArmorStand).forEach(e -> e.remove());
 			return new Tower(allies, enemies, loc, damage, radius, maxHealth, rlm, rbd, rh);
 		} catch (Exception e) {
 			throw new SiegeException("Tower file corrupted.");
@@ -0,0 +1,52 @@
+package com.siege.data.constants;
+
+/**
+ * quality of the plugin effects, lowered when the server is late. Every level
+ * keeps the cuts of the previous ones
+ * 
+ * @author Tommaso
+ *
+ */
+public enum EffectQuality {
+
+	/**
+	 * every effect
+	 */
+	FULL,
+
+	/**
+	 * fewer trail particles and tower arrows without fire
+	 */
+	FEWER_PARTICLES,
+
+	/**
+	 * no firework when a powerup lands
+	 */
+	NO_FIREWORKS,
+
+	/**
+	 * robot boss bars updated once per second
+	 */
+	THROTTLED_BARS,
+
+	/**
+	 * explosion visuals merged in a wider radius
+	 */
+	MERGED_EXPLOSIONS;
+
+	/**
+	 * check if the cuts of a level are active at this level
+	 * 
+	 * @param level the level
+	 * @return true if this level is the same or lower than the given one
+	 */
+	public boolean reaches(EffectQuality level) {
+		return ordinal() >= level.ordinal();
+	}
+
+	@Override
+	public String toString() {
+		return name().toLowerCase().replace('_', ' ');
+	}
+
+}
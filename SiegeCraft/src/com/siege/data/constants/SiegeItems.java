@@ -1,9 +1,13 @@
 package com.siege.data.constants;
 
+import java.util.Arrays;
+
 import org.bukkit.Material;
 import org.bukkit.enchantments.Enchantment;
-import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+
+import com.siege.data.SiegeKit;
 
 public abstract class SiegeItems {
 
@@ -23,6 +27,11 @@ public abstract class SiegeItems {
 	private static final ItemStack BLOCKS = new ItemStack(Material.SANDSTONE);
 	private static final ItemStack STEAKS = new ItemStack(Material.COOKED_BEEF);
 
+	/**
+	 * the built-in battle kit, used when no kit is configured
+	 */
+	public static final SiegeKit KIT;
+
 	static {
 
 		BLOCKS.setAmount(64);
@@ -56,27 +65,15 @@ public abstract class SiegeItems {
 
 		PICKAXE.addUnsafeEnchantment(Enchantment.DIG_SPEED, 5);
 
-		// not working unbreakable flag. Ehm? i don't know this api makes you rage quit
-		HELMET.getItemMeta().setUnbreakable(true);
-		HELMET.setItemMeta(HELMET.getItemMeta());
-
-		CHESTPLATE.getItemMeta().setUnbreakable(true);
-		CHESTPLATE.setItemMeta(CHESTPLATE.getItemMeta());
-
-		LEGGINS.getItemMeta().setUnbreakable(true);
-		LEGGINS.setItemMeta(LEGGINS.getItemMeta());
-
-		BOOTS.getItemMeta().setUnbreakable(true);
-		BOOTS.setItemMeta(BOOTS.getItemMeta());
-
-		BOW.getItemMeta().setUnbreakable(true);
-		BOW.setItemMeta(BOW.getItemMeta());
+		for (ItemStack i : Arrays.asList(HELMET, CHESTPLATE, LEGGINS, BOOTS, BOW, SWORD, PICKAXE)) {
+			// getItemMeta returns a copy that must be set back
+			ItemMeta meta = i.getItemMeta();
+			meta.setUnbreakable(true);
+			i.setItemMeta(meta);
+		}
 
-		SWORD.getItemMeta().setUnbreakable(true);
-		SWORD.setItemMeta(SWORD.getItemMeta());
-
-		PICKAXE.getItemMeta().setUnbreakable(true);
-		PICKAXE.setItemMeta(PICKAXE.getItemMeta());
+		KIT = SiegeKit.of(Arrays.asList(SWORD, BOW, ARROW, PICKAXE, BLOCKS, STEAKS),
+				Arrays.asList(BOOTS, LEGGINS, CHESTPLATE, HELMET));
 	}
 
 	private SiegeItems() {
@@ -102,22 +99,4 @@ public abstract class SiegeItems {
 	public static ItemStack BOMB() {
 		return TNT.clone();
 	}
-
-	/**
-	 * give to a player the basic equipment to battle
-	 * 
-	 * @param e
-	 */
-
-	public static void setEquipment(Player e) {
-		e.getInventory().clear();
-
-		e.getEquipment().setHelmet(HELMET.clone());
-		e.getEquipment().setChestplate(CHESTPLATE.clone());
-		e.getEquipment().setLeggings(LEGGINS.clone());
-		e.getEquipment().setBoots(BOOTS.clone());
-
-		e.getInventory().addItem(SWORD.clone(), BOW.clone(), ARROW.clone(), PICKAXE.clone(), BLOCKS.clone(),
-				STEAKS.clone());
-	}
 }
@@ -1,13 +1,12 @@
 package siege.listeners;
 
-import org.bukkit.Bukkit;
-
 import org.bukkit.ChatColor;
 import org.bukkit.boss.BarColor;
 import org.bukkit.entity.Item;
 import org.bukkit.entity.Player;
 
 import com.siege.data.Robot;
+import com.siege.data.SiegeAnnouncer.Audience;
 import com.siege.data.SiegeBoard;
 import com.siege.data.Tower;
 import com.siege.data.constants.SiegeColor;
@@ -25,8 +24,9 @@ public class SiegeBaseListener extends SiegeGameListener {
 
 	private boolean playing = false;
 
-	public SiegeBaseListener(SiegeBoard scoreboard, ObservableList<Player> redTeam, ObservableList<Player> blueTeam) {
-		super(scoreboard, redTeam, blueTeam);
+	public SiegeBaseListener(String arena, SiegeBoard scoreboard, ObservableList<Player> redTeam,
+			ObservableList<Player> blueTeam) {
+		super(arena, scoreboard, redTeam, blueTeam);
 	}
 
 	@Override
@@ -35,12 +35,12 @@ public class SiegeBaseListener extends SiegeGameListener {
 			return;
 
 		if (winner != null)
-			Bukkit.getOnlinePlayers().forEach(e -> e.sendTitle(winner + " team won!", "", 1, 20, 1));
+			getAnnouncer().title(Audience.ARENA, winner + " team won!", "");
 		else
-			Bukkit.getOnlinePlayers().forEach(e -> e.sendTitle(ChatColor.GOLD + " Game draw!", "", 1, 20, 1));
+			getAnnouncer().title(Audience.ARENA, ChatColor.GOLD + " Game draw!", "");
 
-		blueTeam.forEach(e -> SiegeItems.setEquipment(e));
-		redTeam.forEach(e -> SiegeItems.setEquipment(e));
+		getKit().apply(blueTeam);
+		getKit().apply(redTeam);
 
 		playing = false;
 	}
@@ -48,7 +48,7 @@ public class SiegeBaseListener extends SiegeGameListener {
 	@Override
 	public void onRobotSpawn(SiegeColor teamOwner, Robot r, int level) {
 		if (teamOwner == null || r == null) {
-			Bukkit.getOnlinePlayers().forEach(e -> e.sendMessage(ChatColor.GOLD + "Powerup draw! No robot spawned"));
+			getAnnouncer().message(Audience.ARENA, ChatColor.GOLD + "Powerup draw! No robot spawned");
 			return;
 		}
 
@@ -59,7 +59,7 @@ public class SiegeBaseListener extends SiegeGameListener {
 
 		r.setBossBarColor(teamOwner == SiegeColor.BLUE ? BarColor.BLUE : BarColor.RED);
 
-		Bukkit.getOnlinePlayers().forEach(e -> e.sendMessage(teamOwner + " team spawned a level " + level + " robot!"));
+		getAnnouncer().message(Audience.ARENA, teamOwner + " team spawned a level " + level + " robot!");
 	}
 
 	@Override
@@ -69,12 +69,13 @@ public class SiegeBaseListener extends SiegeGameListener {
 			return;
 		}
 
+		int health = t.getHealth() >= 0 ? t.getHealth() : 0;
 		if (color == SiegeColor.BLUE)
-			scoreboard.setBlueTowerHealth(ChatColor.translateAlternateColorCodes('&',
-					"&9Health: &a" + (t.getHealth() >= 0 ? t.getHealth() : 0) + " &4❤"));
+			defer("blue health", () -> scoreboard.setBlueTowerHealth(
+					ChatColor.translateAlternateColorCodes('&', "&9Health: &a" + health + " &4❤")));
 		else
-			scoreboard.setRedTowerHealth(ChatColor.translateAlternateColorCodes('&',
-					"&4Health: &a" + (t.getHealth() >= 0 ? t.getHealth() : 0) + " &4❤"));
+			defer("red health", () -> scoreboard.setRedTowerHealth(
+					ChatColor.translateAlternateColorCodes('&', "&4Health: &a" + health + " &4❤")));
 
 	}
 
@@ -88,27 +89,23 @@ public class SiegeBaseListener extends SiegeGameListener {
 		onPowerupsChange(SiegeColor.BLUE, blue);
 		onPowerupsChange(SiegeColor.RED, red);
 
-		redTeam.forEach(e -> SiegeItems.setEquipment(e));
-		blueTeam.forEach(e -> SiegeItems.setEquipment(e));
-
-		// default scoreboard
-		scoreboard.enable();
-
+		// kits and scoreboard are given during the countdown
 	}
 
 	@Override
 	public void onPowerupsChange(SiegeColor color, Tower t) {
+		int powerups = t.getPowerups();
 		if (color == SiegeColor.BLUE)
-			scoreboard.setBlueTowerPowerups(
-					ChatColor.translateAlternateColorCodes('&', "&9Powerups: &6" + t.getPowerups() + " &a♦"));
+			defer("blue powerups", () -> scoreboard.setBlueTowerPowerups(
+					ChatColor.translateAlternateColorCodes('&', "&9Powerups: &6" + powerups + " &a♦")));
 		else
-			scoreboard.setRedTowerPowerups(
-					ChatColor.translateAlternateColorCodes('&', "&4Powerups: &6" + t.getPowerups() + " &a♦"));
+			defer("red powerups", () -> scoreboard.setRedTowerPowerups(
+					ChatColor.translateAlternateColorCodes('&', "&4Powerups: &6" + powerups + " &a♦")));
 	}
 
 	@Override
 	public void onPowerupSpawn(Item item) {
-		Bukkit.getOnlinePlayers().forEach(e -> e.sendMessage(ChatColor.GREEN + "New powerup has spawned!"));
+		getAnnouncer().message(Audience.ARENA, ChatColor.GREEN + "New powerup has spawned!");
 	}
 
 }
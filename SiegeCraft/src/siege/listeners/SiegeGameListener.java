@@ -5,8 +5,11 @@ import org.bukkit.entity.Player;
 
 import com.siege.core.SiegeCraft;
 import com.siege.data.Robot;
+import com.siege.data.SiegeAnnouncer;
 import com.siege.data.SiegeBoard;
+import com.siege.data.SiegeKit;
 import com.siege.data.Tower;
+import com.siege.data.constants.EffectQuality;
 import com.siege.data.constants.SiegeColor;
 
 import javafx.collections.FXCollections;
@@ -15,7 +18,9 @@ import siege.exeptions.SiegeException;
 import siege.util.BukkitRestricted;
 
 /**
- * listener for Siege events
+ * listener for Siege events. Every arena has its own listeners instances, the
+ * arena id, teams and scoreboard passed to the constructor are the ones of the
+ * arena where the listener has been registered
  * 
  * @author Tommaso
  *
@@ -23,19 +28,61 @@ import siege.util.BukkitRestricted;
 @BukkitRestricted
 public abstract class SiegeGameListener {
 
+	protected final String arena;
 	protected final ObservableList<Player> redTeam;
 	protected final ObservableList<Player> blueTeam;
 	protected final SiegeBoard scoreboard;
 
-	public SiegeGameListener(SiegeBoard scoreboard, ObservableList<Player> redTeam, ObservableList<Player> blueTeam) {
-		if (redTeam == null || blueTeam == null)
+	public SiegeGameListener(String arena, SiegeBoard scoreboard, ObservableList<Player> redTeam,
+			ObservableList<Player> blueTeam) {
+		if (arena == null || redTeam == null || blueTeam == null)
 			throw new SiegeException("Null values are not allowed");
 
+		this.arena = arena;
 		this.scoreboard = scoreboard;
 		this.redTeam = FXCollections.unmodifiableObservableList(redTeam);
 		this.blueTeam = FXCollections.unmodifiableObservableList(blueTeam);
 	}
 
+	/**
+	 * get the announcer of the arena of this listener. Announcements should be sent
+	 * with it instead of sending them to every online player
+	 * 
+	 * @return the arena announcer
+	 * 
+	 * @throws SiegeException        if the arena has been removed
+	 * @throws IllegalStateException if the caller is not the bukkit thread
+	 */
+	protected SiegeAnnouncer getAnnouncer() {
+		return SiegeCraft.getInstance().getArena(arena).getAnnouncer();
+	}
+
+	/**
+	 * update the scoreboard or other cosmetic things in the time left in the tick
+	 * instead of now. Updates with the same key not run yet are replaced by the
+	 * latest one
+	 * 
+	 * @param key the key of the updated thing
+	 * @param r   the update
+	 * 
+	 * @throws SiegeException        if the arena has been removed
+	 * @throws IllegalStateException if the caller is not the bukkit thread
+	 */
+	protected void defer(Object key, Runnable r) {
+		SiegeCraft.getInstance().getArena(arena).defer(key, r);
+	}
+
+	/**
+	 * get the kit given to the players, as defined in the kits file
+	 * 
+	 * @return the default kit
+	 * 
+	 * @throws IllegalStateException if the caller is not the bukkit thread
+	 */
+	protected SiegeKit getKit() {
+		return SiegeCraft.getInstance().getKit(SiegeCraft.DEFAULT_KIT);
+	}
+
 	/**
 	 * event fired when time run out
 	 * 
@@ -50,7 +97,7 @@ public abstract class SiegeGameListener {
 	/**
 	 * event fired when a robot spawn. Robots created by commands cannot be accessed
 	 * and this method let you access them. For robots created using
-	 * {@link SiegeCraft#spawnRobot(org.bukkit.Location, SiegeColor, double, double)}
+	 * {@link SiegeCraft#spawnRobot(String, org.bukkit.Location, SiegeColor, int, int)}
 	 * this method is a short version of
 	 * 
 	 * <pre>
@@ -94,7 +141,7 @@ public abstract class SiegeGameListener {
 	 * event fired when a tower takes damage. Towers created by commands can be
 	 * accessed using onGameStart() and this method is a short way to add a
 	 * tower.onTowerDamage() event. For towers created using
-	 * {@link SiegeCraft#spawnTower(org.bukkit.Location, SiegeColor, double, double, double, double, double, double)},
+	 * {@link SiegeCraft#spawnTower(String, org.bukkit.Location, SiegeColor, int, int, int, double, int, int)},
 	 * this method is a short version of
 	 * 
 	 * <pre>
@@ -116,7 +163,7 @@ public abstract class SiegeGameListener {
 	 * ready to start the game. Please don't use
 	 * 
 	 * <pre>
-	 * SiegeCraft.getInstance().startGame(int, int);
+	 * SiegeCraft.getInstance().startGame(String, int, int);
 	 * myFunction().
 	 * </pre>
 	 * 
@@ -142,7 +189,7 @@ public abstract class SiegeGameListener {
 	 * event fired when tower powerups amount change. Towers created by commands
 	 * cannot be accessed and this method let you access them. For towers created
 	 * using
-	 * {@link SiegeCraft#spawnTower(org.bukkit.Location, SiegeColor, double, double, double, double, double, double)},
+	 * {@link SiegeCraft#spawnTower(String, org.bukkit.Location, SiegeColor, int, int, int, double, int, int)},
 	 * this method is a short version of
 	 * 
 	 * <pre>
@@ -170,6 +217,18 @@ public abstract class SiegeGameListener {
 		;
 	}
 
+	/**
+	 * event fired when the quality of the effects changes because the server is
+	 * late or keeps up again. Custom effects should follow the same cuts, see
+	 * {@link EffectQuality}
+	 * 
+	 * @param quality the new effect quality
+	 */
+
+	public void onQualityChange(EffectQuality quality) {
+		;
+	}
+
 	/**
 	 * event fired every time that timer changes (every second)
 	 * 
@@ -180,4 +239,17 @@ public abstract class SiegeGameListener {
 		;
 	}
 
+	/**
+	 * event fired every time that timer changes. The game clock follows the real
+	 * time, so when the server is late the time can skip some seconds. By default
+	 * it calls {@link #onTimeChange(int)}
+	 * 
+	 * @param newTime the seconds left
+	 * @param elapsed the real time since the game started, in milliseconds
+	 */
+
+	public void onTimeChange(int newTime, long elapsed) {
+		onTimeChange(newTime);
+	}
+
 }